@@ -0,0 +1,80 @@
+import java.util.Random;
+
+/**
+ * Shared test data for the benchmarks.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ */
+public final class BenchmarkData {
+
+    /**
+     * Seed for the random number generator, so every run uses the same data.
+     */
+    private static final long SEED = 2231L;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BenchmarkData() {
+    }
+
+    /**
+     * Returns {@code n} distinct keys in a fixed pseudo-random order.
+     *
+     * @param n
+     *            the number of keys
+     * @return the keys
+     * @requires n >= 0
+     * @ensures <pre>
+     * |keys| = n  and  [the entries of keys are distinct]  and
+     * [keys is the same for every call with the same n]
+     * </pre>
+     */
+    public static String[] keys(int n) {
+        return shuffled(n, "key");
+    }
+
+    /**
+     * Returns {@code n} distinct keys, none of which is in {@code keys(m)} for
+     * any {@code m}, in a fixed pseudo-random order.
+     *
+     * @param n
+     *            the number of keys
+     * @return the keys
+     * @requires n >= 0
+     * @ensures <pre>
+     * |missingKeys| = n  and  [the entries of missingKeys are distinct]  and
+     * [no entry of missingKeys is in keys(m), for any m]
+     * </pre>
+     */
+    public static String[] missingKeys(int n) {
+        return shuffled(n, "missing");
+    }
+
+    /**
+     * Returns the strings {@code prefix + i}, for 0 <= i < n, shuffled with
+     * the fixed seed.
+     *
+     * @param n
+     *            the number of strings
+     * @param prefix
+     *            the prefix of every string
+     * @return the shuffled strings
+     */
+    private static String[] shuffled(int n, String prefix) {
+        String[] keys = new String[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = prefix + i;
+        }
+        Random random = new Random(SEED);
+        //Fisher-Yates shuffle
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String temp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = temp;
+        }
+        return keys;
+    }
+
+}
@@ -0,0 +1,69 @@
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks and writes the results, including allocation rates
+ * from the GC profiler, as JSON so that runs from different builds can be
+ * compared.
+ *
+ * <p>
+ * The build path must include the {@code src} folders of
+ * {@code MapWithHashing 3}, {@code SetOnBST}, {@code ListWithRetreat}, and
+ * {@code SortingMachineWithHeapsort 2}, the components library, and JMH (with
+ * its annotation processor enabled).
+ * </p>
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * Default file the results are written to.
+     */
+    private static final String DEFAULT_RESULT_FILE = "benchmark-results.json";
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            optional: a regular expression selecting the benchmarks to
+     *            run (default: all of them), the JSON file to write the results
+     *            to, and then any number of size values to use instead of the
+     *            defaults
+     * @throws RunnerException
+     *             if JMH fails to run the benchmarks
+     */
+    public static void main(String[] args) throws RunnerException {
+        String include = "Benchmark";
+        String resultFile = DEFAULT_RESULT_FILE;
+        if (args.length > 0) {
+            include = args[0];
+        }
+        if (args.length > 1) {
+            resultFile = args[1];
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON).result(resultFile);
+        //narrow the sizes, e.g. to skip 10^6 for the list-based components
+        if (args.length > 2) {
+            String[] sizes = new String[args.length - 2];
+            System.arraycopy(args, 2, sizes, 0, sizes.length);
+            options = options.param("size", sizes);
+        }
+
+        new Runner(options.build()).run();
+    }
+
+}
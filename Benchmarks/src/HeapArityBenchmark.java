@@ -0,0 +1,91 @@
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmark comparing {@code SortingMachine5a} heaps of different arities
+ * on a {@code removeFirst}-heavy workload: the machine is filled and switched
+ * to extraction mode outside the measurement, and the measured operation
+ * removes every entry. Comparing the scores for each size shows from which
+ * size on a wider heap beats the binary one.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeapArityBenchmark {
+
+    /**
+     * Number of children of each node of the heap.
+     */
+    @Param({ "2", "4", "8" })
+    private int arity;
+
+    /**
+     * Number of entries to remove.
+     */
+    @Param({ "1000", "10000", "100000", "1000000" })
+    private int size;
+
+    /**
+     * Entries, in a fixed pseudo-random order.
+     */
+    private String[] entries;
+
+    /**
+     * Order used by every machine.
+     */
+    private Comparator<String> order;
+
+    /**
+     * The machine being drained.
+     */
+    private SortingMachine5a<String> machine;
+
+    /**
+     * Creates the entries.
+     */
+    @Setup(Level.Trial)
+    public void setUpEntries() {
+        this.entries = BenchmarkData.keys(this.size);
+        this.order = (s1, s2) -> s1.compareTo(s2);
+    }
+
+    /**
+     * Fills a new machine and switches it to extraction mode before each
+     * drain.
+     */
+    @Setup(Level.Invocation)
+    public void fill() {
+        this.machine = new SortingMachine5a<>(this.order, this.arity);
+        for (String x : this.entries) {
+            this.machine.add(x);
+        }
+        this.machine.changeToExtractionMode();
+    }
+
+    /**
+     * Removes every entry with {@code removeFirst}.
+     *
+     * @param bh
+     *            sink for the entries removed
+     */
+    @Benchmark
+    public void drain(Blackhole bh) {
+        while (this.machine.size() > 0) {
+            bh.consume(this.machine.removeFirst());
+        }
+    }
+
+}
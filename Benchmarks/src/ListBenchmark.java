@@ -0,0 +1,115 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import components.list.List;
+import components.list.List2;
+
+/**
+ * JMH benchmarks comparing {@code List3} and {@code UnrolledList3} with the
+ * {@code List2} component on lists of various sizes. Each benchmark starts
+ * with the position in the middle of the list.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ListBenchmark {
+
+    /**
+     * Implementation under test.
+     */
+    @Param({ "List3", "UnrolledList3", "List2" })
+    private String implementation;
+
+    /**
+     * Number of entries in the list.
+     */
+    @Param({ "10", "100", "1000", "10000", "100000", "1000000" })
+    private int size;
+
+    /**
+     * The list under test.
+     */
+    private List<String> list;
+
+    /**
+     * Returns a new, empty list of the given implementation.
+     *
+     * @param name
+     *            the name of the implementation
+     * @return the new list
+     */
+    private static List<String> newList(String name) {
+        List<String> l;
+        if (name.equals("List3")) {
+            l = new List3<>();
+        } else if (name.equals("UnrolledList3")) {
+            l = new UnrolledList3<>();
+        } else {
+            l = new List2<>();
+        }
+        return l;
+    }
+
+    /**
+     * Builds the list under test, with half of it to the left.
+     */
+    @Setup
+    public void setUp() {
+        String[] entries = BenchmarkData.keys(this.size);
+        this.list = newList(this.implementation);
+        for (int i = 0; i < this.size; i++) {
+            this.list.addRightFront(entries[i]);
+        }
+        for (int i = 0; i < this.size / 2; i++) {
+            this.list.advance();
+        }
+    }
+
+    /**
+     * Adds an entry at the right front and removes it again.
+     *
+     * @return the removed entry
+     */
+    @Benchmark
+    public String addAndRemoveRightFront() {
+        this.list.addRightFront("x");
+        return this.list.removeRightFront();
+    }
+
+    /**
+     * Advances and then retreats one position.
+     *
+     * @return the length of the left part afterwards
+     */
+    @Benchmark
+    public int advanceAndRetreat() {
+        this.list.advance();
+        this.list.retreat();
+        return this.list.leftLength();
+    }
+
+    /**
+     * Iterates over the whole list.
+     *
+     * @param bh
+     *            sink for the entries seen
+     */
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (String x : this.list) {
+            bh.consume(x);
+        }
+    }
+
+}
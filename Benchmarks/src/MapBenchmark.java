@@ -0,0 +1,171 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import components.map.Map;
+import components.map.Map1L;
+import components.map.Map2;
+
+/**
+ * JMH benchmarks comparing {@code Map4} (and {@code Map5}) with the
+ * {@code Map2} and {@code Map1L} components on maps of various sizes.
+ *
+ * <p>
+ * Each benchmark works on a map that already holds {@code size} entries;
+ * {@code removeAndAdd} puts back what it takes out, so the size stays the same
+ * for the whole run.
+ * </p>
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MapBenchmark {
+
+    /**
+     * Implementation under test.
+     */
+    @Param({ "Map4", "Map5", "Map2", "Map1L" })
+    private String implementation;
+
+    /**
+     * Number of entries in the map.
+     */
+    @Param({ "10", "100", "1000", "10000", "100000", "1000000" })
+    private int size;
+
+    /**
+     * The map under test.
+     */
+    private Map<String, Integer> map;
+
+    /**
+     * Keys in the map, in a fixed pseudo-random order.
+     */
+    private String[] keys;
+
+    /**
+     * Keys not in the map, in a fixed pseudo-random order.
+     */
+    private String[] missing;
+
+    /**
+     * Index of the next key to use.
+     */
+    private int next;
+
+    /**
+     * Returns a new, empty map of the given implementation.
+     *
+     * @param name
+     *            the name of the implementation
+     * @return the new map
+     */
+    private static Map<String, Integer> newMap(String name) {
+        Map<String, Integer> m;
+        if (name.equals("Map4")) {
+            m = new Map4<>();
+        } else if (name.equals("Map5")) {
+            m = new Map5<>();
+        } else if (name.equals("Map2")) {
+            m = new Map2<>();
+        } else {
+            m = new Map1L<>();
+        }
+        return m;
+    }
+
+    /**
+     * Builds the map under test.
+     */
+    @Setup
+    public void setUp() {
+        this.keys = BenchmarkData.keys(this.size);
+        this.missing = BenchmarkData.missingKeys(this.size);
+        this.map = newMap(this.implementation);
+        for (int i = 0; i < this.size; i++) {
+            this.map.add(this.keys[i], i);
+        }
+        this.next = 0;
+    }
+
+    /**
+     * Advances to the next key index, wrapping around.
+     *
+     * @return the index to use
+     */
+    private int nextIndex() {
+        int i = this.next;
+        this.next++;
+        if (this.next == this.size) {
+            this.next = 0;
+        }
+        return i;
+    }
+
+    /**
+     * Looks up a key that is in the map.
+     *
+     * @return whether the key was found
+     */
+    @Benchmark
+    public boolean hasKeyPresent() {
+        return this.map.hasKey(this.keys[this.nextIndex()]);
+    }
+
+    /**
+     * Looks up a key that is not in the map.
+     *
+     * @return whether the key was found
+     */
+    @Benchmark
+    public boolean hasKeyMissing() {
+        return this.map.hasKey(this.missing[this.nextIndex()]);
+    }
+
+    /**
+     * Gets the value of a key that is in the map.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public Integer value() {
+        return this.map.value(this.keys[this.nextIndex()]);
+    }
+
+    /**
+     * Removes a key and adds it back.
+     *
+     * @return the removed pair
+     */
+    @Benchmark
+    public Map.Pair<String, Integer> removeAndAdd() {
+        Map.Pair<String, Integer> p = this.map
+                .remove(this.keys[this.nextIndex()]);
+        this.map.add(p.key(), p.value());
+        return p;
+    }
+
+    /**
+     * Iterates over the whole map.
+     *
+     * @param bh
+     *            sink for the pairs seen
+     */
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (Map.Pair<String, Integer> p : this.map) {
+            bh.consume(p);
+        }
+    }
+
+}
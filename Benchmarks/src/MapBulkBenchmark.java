@@ -0,0 +1,76 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import components.map.Map;
+import components.map.Map2;
+
+/**
+ * JMH benchmark comparing loading a growing {@code Map4} one pair at a time
+ * with loading it through {@code addAll}.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapBulkBenchmark {
+
+    /**
+     * Number of pairs to load.
+     */
+    @Param({ "1000", "100000", "1000000" })
+    private int size;
+
+    /**
+     * The pairs to load.
+     */
+    private Map<String, Integer> source;
+
+    /**
+     * Creates the pairs.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] keys = BenchmarkData.keys(this.size);
+        this.source = new Map2<>();
+        for (int i = 0; i < keys.length; i++) {
+            this.source.add(keys[i], i);
+        }
+    }
+
+    /**
+     * Loads every pair with {@code add}.
+     *
+     * @return the loaded map
+     */
+    @Benchmark
+    public Map<String, Integer> addEach() {
+        Map<String, Integer> map = new Map4<>(1, true);
+        for (Map.Pair<String, Integer> p : this.source) {
+            map.add(p.key(), p.value());
+        }
+        return map;
+    }
+
+    /**
+     * Loads every pair with one {@code addAll}.
+     *
+     * @return the loaded map
+     */
+    @Benchmark
+    public Map<String, Integer> addAll() {
+        Map4<String, Integer> map = new Map4<>(1, true);
+        map.addAll(this.source);
+        return map;
+    }
+
+}
@@ -0,0 +1,82 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import components.map.Map;
+
+/**
+ * JMH benchmark for draining a sparse {@code Map4} with {@code removeAny}. The
+ * time per drain should grow linearly with the number of entries, and not
+ * with the number of buckets times the number of entries.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapDrainBenchmark {
+
+    /**
+     * Number of buckets in the table.
+     */
+    @Param({ "1009", "1000003" })
+    private int buckets;
+
+    /**
+     * Number of entries to drain.
+     */
+    @Param({ "1000", "10000", "100000" })
+    private int entries;
+
+    /**
+     * Keys to fill the map with.
+     */
+    private String[] keys;
+
+    /**
+     * The map being drained.
+     */
+    private Map<String, Integer> map;
+
+    /**
+     * Creates the keys.
+     */
+    @Setup(Level.Trial)
+    public void setUpKeys() {
+        this.keys = BenchmarkData.keys(this.entries);
+    }
+
+    /**
+     * Refills the map before each drain.
+     */
+    @Setup(Level.Invocation)
+    public void fill() {
+        this.map = new Map4<>(this.buckets);
+        for (int i = 0; i < this.entries; i++) {
+            this.map.add(this.keys[i], i);
+        }
+    }
+
+    /**
+     * Removes every entry with {@code removeAny}.
+     *
+     * @return the last pair removed
+     */
+    @Benchmark
+    public Map.Pair<String, Integer> drain() {
+        Map.Pair<String, Integer> last = null;
+        while (this.map.size() > 0) {
+            last = this.map.removeAny();
+        }
+        return last;
+    }
+
+}
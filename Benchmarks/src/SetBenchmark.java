@@ -0,0 +1,149 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * JMH benchmarks comparing {@code Set3a} with the {@code Set1L} component on
+ * sets of various sizes. The elements are added in pseudo-random order.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SetBenchmark {
+
+    /**
+     * Implementation under test.
+     */
+    @Param({ "Set3a", "Set1L" })
+    private String implementation;
+
+    /**
+     * Number of elements in the set.
+     */
+    @Param({ "10", "100", "1000", "10000", "100000", "1000000" })
+    private int size;
+
+    /**
+     * The set under test.
+     */
+    private Set<String> set;
+
+    /**
+     * Elements in the set, in a fixed pseudo-random order.
+     */
+    private String[] elements;
+
+    /**
+     * Elements not in the set, in a fixed pseudo-random order.
+     */
+    private String[] missing;
+
+    /**
+     * Index of the next element to use.
+     */
+    private int next;
+
+    /**
+     * Returns a new, empty set of the given implementation.
+     *
+     * @param name
+     *            the name of the implementation
+     * @return the new set
+     */
+    private static Set<String> newSet(String name) {
+        Set<String> s;
+        if (name.equals("Set3a")) {
+            s = new Set3a<>();
+        } else {
+            s = new Set1L<>();
+        }
+        return s;
+    }
+
+    /**
+     * Builds the set under test.
+     */
+    @Setup
+    public void setUp() {
+        this.elements = BenchmarkData.keys(this.size);
+        this.missing = BenchmarkData.missingKeys(this.size);
+        this.set = newSet(this.implementation);
+        for (int i = 0; i < this.size; i++) {
+            this.set.add(this.elements[i]);
+        }
+        this.next = 0;
+    }
+
+    /**
+     * Advances to the next element index, wrapping around.
+     *
+     * @return the index to use
+     */
+    private int nextIndex() {
+        int i = this.next;
+        this.next++;
+        if (this.next == this.size) {
+            this.next = 0;
+        }
+        return i;
+    }
+
+    /**
+     * Looks up an element that is in the set.
+     *
+     * @return whether the element was found
+     */
+    @Benchmark
+    public boolean containsPresent() {
+        return this.set.contains(this.elements[this.nextIndex()]);
+    }
+
+    /**
+     * Looks up an element that is not in the set.
+     *
+     * @return whether the element was found
+     */
+    @Benchmark
+    public boolean containsMissing() {
+        return this.set.contains(this.missing[this.nextIndex()]);
+    }
+
+    /**
+     * Removes an element and adds it back.
+     *
+     * @return the removed element
+     */
+    @Benchmark
+    public String removeAndAdd() {
+        String x = this.set.remove(this.elements[this.nextIndex()]);
+        this.set.add(x);
+        return x;
+    }
+
+    /**
+     * Iterates over the whole set.
+     *
+     * @param bh
+     *            sink for the elements seen
+     */
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (String x : this.set) {
+            bh.consume(x);
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import components.set.Set;
+
+/**
+ * JMH benchmark comparing the unbalanced {@code Set3a} with the AVL-balanced
+ * {@code Set3b} when the elements arrive in sorted, reverse-sorted, or
+ * pseudo-random order. The measured operation builds the set from scratch and
+ * then looks up every element, so it shows both the cost of keeping the tree
+ * balanced and what an unbalanced tree costs on sorted input.
+ *
+ * <p>
+ * Sizes stay small because {@code Set3a} takes quadratic time on sorted
+ * input.
+ * </p>
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SetInsertionOrderBenchmark {
+
+    /**
+     * Implementation under test.
+     */
+    @Param({ "Set3a", "Set3b" })
+    private String implementation;
+
+    /**
+     * Order in which the elements are added.
+     */
+    @Param({ "sorted", "reversed", "random" })
+    private String insertionOrder;
+
+    /**
+     * Number of elements in the set.
+     */
+    @Param({ "100", "1000", "5000" })
+    private int size;
+
+    /**
+     * Elements, in the order they are added.
+     */
+    private String[] elements;
+
+    /**
+     * Returns a new, empty set of the given implementation.
+     *
+     * @param name
+     *            the name of the implementation
+     * @return the new set
+     */
+    private static Set<String> newSet(String name) {
+        Set<String> s;
+        if (name.equals("Set3a")) {
+            s = new Set3a<>();
+        } else {
+            s = new Set3b<>();
+        }
+        return s;
+    }
+
+    /**
+     * Puts the elements in the order under test.
+     */
+    @Setup
+    public void setUp() {
+        this.elements = BenchmarkData.keys(this.size);
+        if (this.insertionOrder.equals("sorted")) {
+            Arrays.sort(this.elements);
+        } else if (this.insertionOrder.equals("reversed")) {
+            Arrays.sort(this.elements, Collections.reverseOrder());
+        }
+    }
+
+    /**
+     * Adds every element to a new set, then looks each one up.
+     *
+     * @return the set built
+     */
+    @Benchmark
+    public Set<String> buildAndSearch() {
+        Set<String> s = newSet(this.implementation);
+        for (String x : this.elements) {
+            s.add(x);
+        }
+        for (String x : this.elements) {
+            if (!s.contains(x)) {
+                throw new AssertionError("Missing element " + x);
+            }
+        }
+        return s;
+    }
+
+}
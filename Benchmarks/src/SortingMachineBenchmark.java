@@ -0,0 +1,124 @@
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import components.sortingmachine.SortingMachine;
+import components.sortingmachine.SortingMachine1L;
+
+/**
+ * JMH benchmarks comparing {@code SortingMachine5a} with the
+ * {@code SortingMachine1L} component for sorting various numbers of entries.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SortingMachineBenchmark {
+
+    /**
+     * Compare {@code String}s in lexicographic order.
+     */
+    private static final class StringLT implements Comparator<String> {
+        @Override
+        public int compare(String o1, String o2) {
+            return o1.compareTo(o2);
+        }
+    }
+
+    /**
+     * Implementation under test.
+     */
+    @Param({ "SortingMachine5a", "SortingMachine1L" })
+    private String implementation;
+
+    /**
+     * Number of entries to sort.
+     */
+    @Param({ "10", "100", "1000", "10000", "100000", "1000000" })
+    private int size;
+
+    /**
+     * Entries to sort, in a fixed pseudo-random order.
+     */
+    private String[] entries;
+
+    /**
+     * Order used by every machine.
+     */
+    private Comparator<String> order;
+
+    /**
+     * Returns a new, empty machine of the given implementation.
+     *
+     * @param name
+     *            the name of the implementation
+     * @param order
+     *            the order of the machine
+     * @return the new machine
+     */
+    private static SortingMachine<String> newMachine(String name,
+            Comparator<String> order) {
+        SortingMachine<String> m;
+        if (name.equals("SortingMachine5a")) {
+            m = new SortingMachine5a<>(order);
+        } else {
+            m = new SortingMachine1L<>(order);
+        }
+        return m;
+    }
+
+    /**
+     * Creates the entries.
+     */
+    @Setup
+    public void setUp() {
+        this.entries = BenchmarkData.keys(this.size);
+        this.order = new StringLT();
+    }
+
+    /**
+     * Adds every entry, switches to extraction mode, and removes every entry.
+     *
+     * @param bh
+     *            sink for the entries removed
+     */
+    @Benchmark
+    public void sort(Blackhole bh) {
+        SortingMachine<String> m = newMachine(this.implementation, this.order);
+        for (String x : this.entries) {
+            m.add(x);
+        }
+        m.changeToExtractionMode();
+        while (m.size() > 0) {
+            bh.consume(m.removeFirst());
+        }
+    }
+
+    /**
+     * Adds every entry and iterates over the machine in insertion mode.
+     *
+     * @param bh
+     *            sink for the entries seen
+     */
+    @Benchmark
+    public void addAndIterate(Blackhole bh) {
+        SortingMachine<String> m = newMachine(this.implementation, this.order);
+        for (String x : this.entries) {
+            m.add(x);
+        }
+        for (String x : m) {
+            bh.consume(x);
+        }
+    }
+
+}
@@ -0,0 +1,618 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.list.List;
+import components.list.ListSecondary;
+
+/**
+ * {@code List} represented as an unrolled doubly linked list, done
+ * "bare-handed": each node holds a chunk of up to {@code capacity} entries in
+ * an array, instead of a single entry, with implementations of primary
+ * methods and {@code retreat} and other secondary methods.
+ *
+ * <p>
+ * Compared with {@code List3}, which uses one node (with its object header
+ * and two links) per entry, the overhead of a node is shared by many entries,
+ * and iterating reads consecutive array slots rather than following a link
+ * per entry. The position between {@code this.left} and {@code this.right} is
+ * a chunk and an offset into it. {@code addRightFront} shifts the entries
+ * after the position within its chunk, splitting the chunk in two when it is
+ * full; {@code removeRightFront} shifts them back, merging the chunk with a
+ * neighbor when the two hold at most {@code capacity / 2} entries together,
+ * so chunks stay on average more than a quarter full.
+ * </p>
+ *
+ * <p>
+ * Execution-time performance of {@code advance}, {@code retreat},
+ * {@code moveToStart}, and {@code moveToFinish} is O(1); that of
+ * {@code addRightFront} and {@code removeRightFront} is O(capacity).
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code List} entries
+ * @convention <pre>
+ * $this.capacity >= 2  and
+ * $this.leftLength >= 0  and  $this.rightLength >= 0  and
+ * [$this.preStart and $this.postFinish are not null, and have count 0]  and
+ * [$this.preStart points to the first chunk of a doubly linked list of
+ *  chunks, and $this.postFinish to the last one]  and
+ * [for every chunk c other than $this.preStart and $this.postFinish,
+ *  1 <= c.count <= $this.capacity  and  |c.data| = $this.capacity  and
+ *  c.data[0, c.count) are not null]  and
+ * [for every two adjacent chunks c and d other than $this.preStart and
+ *  $this.postFinish, c.count + d.count > $this.capacity / 2]  and
+ * [$this.current is a chunk of that list other than $this.postFinish]  and
+ * 0 <= $this.offset <= $this.current.count  and
+ * $this.leftLength = [number of entries in the chunks before
+ *   $this.current] + $this.offset  and
+ * $this.leftLength + $this.rightLength = [number of entries in all chunks]  and
+ * [for every chunk c, c.next.previous = c and c.previous.next = c where
+ *  those chunks exist]
+ * </pre>
+ * @correspondence <pre>
+ * this =
+ *  ([the first $this.leftLength entries, in order, of the data of the chunks
+ *    from $this.preStart to $this.postFinish],
+ *   [the remaining entries, in order])
+ * </pre>
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class UnrolledList3<T> extends ListSecondary<T> {
+
+    /**
+     * Node class for chunks of the doubly linked list.
+     */
+    private final class Chunk {
+
+        /**
+         * Entries in chunk, in slots [0, count); empty in "smart" chunks.
+         */
+        private T[] data;
+
+        /**
+         * Number of entries in chunk.
+         */
+        private int count;
+
+        /**
+         * Next chunk in doubly linked list, or, if this is a trailing "smart"
+         * Chunk, irrelevant.
+         */
+        private Chunk next;
+
+        /**
+         * Previous chunk in doubly linked list, or, if this is a leading
+         * "smart" Chunk, irrelevant.
+         */
+        private Chunk previous;
+
+    }
+
+    /**
+     * Default number of entries in a full chunk.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Number of entries in a full chunk.
+     */
+    private int capacity;
+
+    /**
+     * "Smart chunk" before first chunk of doubly linked list.
+     */
+    private Chunk preStart;
+
+    /**
+     * "Smart chunk" after last chunk of doubly linked list.
+     */
+    private Chunk postFinish;
+
+    /**
+     * Chunk holding the position between this.left and this.right.
+     */
+    private Chunk current;
+
+    /**
+     * Offset in {@code current} of the first entry of this.right, or
+     * {@code current.count} if that entry is in a later chunk.
+     */
+    private int offset;
+
+    /**
+     * Length of this.left.
+     */
+    private int leftLength;
+
+    /**
+     * Length of this.right.
+     */
+    private int rightLength;
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * $this.leftLength >= 0  and  $this.rightLength >= 0  and
+     * [$this.preStart and $this.postFinish have count 0]  and
+     * [every chunk c other than $this.preStart and $this.postFinish has
+     *  1 <= c.count <= $this.capacity, and non-null entries in
+     *  c.data[0, c.count)]  and
+     * [every two adjacent such chunks hold more than $this.capacity / 2
+     *  entries together]  and
+     * [$this.current is in the list, and is not $this.postFinish]  and
+     * 0 <= $this.offset <= $this.current.count  and
+     * [$this.leftLength and $this.rightLength agree with the position of
+     *  $this.current and $this.offset]  and
+     * [the chunks are doubly linked]
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        assert this.leftLength >= 0 : "Violation of: $this.leftLength >= 0";
+        assert this.rightLength >= 0 : "Violation of: $this.rightLength >= 0";
+        assert this.preStart.count == 0 && this.postFinish.count == 0 : ""
+                + "Violation of: [$this.preStart and $this.postFinish have"
+                + " count 0]";
+        assert this.current != this.postFinish : ""
+                + "Violation of: [$this.current is not $this.postFinish]";
+        assert 0 <= this.offset && this.offset <= this.current.count : ""
+                + "Violation of: 0 <= $this.offset <= $this.current.count";
+
+        int before = -1;
+        int total = 0;
+        int previousCount = this.capacity;
+        Chunk c = this.preStart;
+        while (c != this.postFinish) {
+            if (c == this.current) {
+                //total already counts the entries of c itself
+                before = total - c.count + this.offset;
+            }
+            assert c.next != null && c.next.previous == c : ""
+                    + "Violation of: [the chunks are doubly linked]";
+            c = c.next;
+            if (c != this.postFinish) {
+                assert 1 <= c.count && c.count <= this.capacity : ""
+                        + "Violation of: 1 <= c.count <= $this.capacity";
+                for (int i = 0; i < c.count; i++) {
+                    assert c.data[i] != null : ""
+                            + "Violation of: [entries of chunks are not null]";
+                }
+                assert previousCount + c.count > this.capacity / 2 : ""
+                        + "Violation of: [every two adjacent chunks hold more"
+                        + " than $this.capacity / 2 entries together]";
+                previousCount = c.count;
+                total += c.count;
+            }
+        }
+        assert before >= 0 : "Violation of: [$this.current is in the list]";
+        assert before == this.leftLength : ""
+                + "Violation of: [$this.leftLength agrees with the position]";
+        assert total == this.leftLength + this.rightLength : ""
+                + "Violation of: $this.leftLength + $this.rightLength ="
+                + " [number of entries in all chunks]";
+
+        return true;
+    }
+
+    /**
+     * Creates a new, empty chunk and links it into the list after
+     * {@code before}.
+     *
+     * @param before
+     *            the chunk to link the new one after
+     * @return the new chunk
+     * @requires before is in the list and is not $this.postFinish
+     * @ensures [linkAfter is a new, empty chunk, just after before]
+     */
+    @SuppressWarnings("unchecked")
+    private Chunk linkAfter(Chunk before) {
+        Chunk c = new Chunk();
+        /*
+         * With "new T[...]" in place of "new Object[...]" it does not compile;
+         * as shown, it results in a warning about an unchecked cast, though it
+         * cannot fail.
+         */
+        c.data = (T[]) new Object[this.capacity];
+        c.previous = before;
+        c.next = before.next;
+        before.next.previous = c;
+        before.next = c;
+        return c;
+    }
+
+    /**
+     * Unlinks chunk {@code c} from the list.
+     *
+     * @param c
+     *            the chunk to unlink
+     * @requires c is in the list, and is neither of the "smart" chunks
+     * @ensures [c is no longer in the list]
+     */
+    private void unlink(Chunk c) {
+        c.previous.next = c.next;
+        c.next.previous = c.previous;
+    }
+
+    /**
+     * Moves the entries of chunk {@code c.next} to the end of {@code c}, and
+     * unlinks {@code c.next}.
+     *
+     * @param c
+     *            the chunk to merge into
+     * @requires <pre>
+     * c and c.next are chunks other than the "smart" chunks  and
+     * c.count + c.next.count <= $this.capacity
+     * </pre>
+     * @ensures [c holds its entries followed by those of #c.next]
+     */
+    private void mergeNext(Chunk c) {
+        Chunk d = c.next;
+        System.arraycopy(d.data, 0, c.data, c.count, d.count);
+        c.count += d.count;
+        this.unlink(d);
+    }
+
+    /**
+     * Moves the position forward to the start of the next chunk if it is at
+     * the end of {@code current}, so that the first entry of this.right, if
+     * any, is at {@code current.data[offset]}.
+     *
+     * @updates $this.current, $this.offset
+     * @ensures <pre>
+     * [the abstract value of this is unchanged]  and
+     * ($this.offset < $this.current.count  or  this.right = <>)
+     * </pre>
+     */
+    private void normalize() {
+        if (this.offset == this.current.count
+                && this.current.next != this.postFinish) {
+            this.current = this.current.next;
+            this.offset = 0;
+        }
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param chunkCapacity
+     *            the number of entries in a full chunk
+     * @requires chunkCapacity >= 2
+     */
+    private void createNewRep(int chunkCapacity) {
+
+        this.capacity = chunkCapacity;
+
+        this.preStart = new Chunk();
+        this.postFinish = new Chunk();
+
+        //doubly link chunks
+        this.preStart.next = this.postFinish;
+        this.postFinish.previous = this.preStart;
+
+        this.current = this.preStart;
+        this.offset = 0;
+        this.leftLength = 0;
+        this.rightLength = 0;
+
+    }
+
+    /**
+     * No-argument constructor.
+     */
+    public UnrolledList3() {
+
+        this.createNewRep(DEFAULT_CAPACITY);
+
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Constructor from the number of entries in a full chunk.
+     *
+     * @param chunkCapacity
+     *            the number of entries in a full chunk
+     * @requires chunkCapacity >= 2
+     */
+    public UnrolledList3(int chunkCapacity) {
+        assert chunkCapacity >= 2 : "Violation of: chunkCapacity >= 2";
+
+        this.createNewRep(chunkCapacity);
+
+        assert this.conventionHolds();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final UnrolledList3<T> newInstance() {
+        try {
+            return this.getClass().getConstructor(int.class)
+                    .newInstance(this.capacity);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(this.capacity);
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(List<T> source) {
+        assert source instanceof UnrolledList3<?> : ""
+                + "Violation of: source is of dynamic type UnrolledList3<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * UnrolledList3<?>, and the ? must be T or the call would not have
+         * compiled.
+         */
+        UnrolledList3<T> localSource = (UnrolledList3<T>) source;
+        this.capacity = localSource.capacity;
+        this.preStart = localSource.preStart;
+        this.postFinish = localSource.postFinish;
+        this.current = localSource.current;
+        this.offset = localSource.offset;
+        this.leftLength = localSource.leftLength;
+        this.rightLength = localSource.rightLength;
+        localSource.createNewRep(localSource.capacity);
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    @Override
+    public final void addRightFront(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        Chunk c = this.current;
+        int i = this.offset;
+        if (c == this.preStart || c.count == this.capacity) {
+            if (i == c.count && c.next != this.postFinish
+                    && c.next.count < this.capacity) {
+                //x goes at the start of the next chunk, which has room
+                c = c.next;
+                i = 0;
+            } else if (i == c.count) {
+                //x goes at the end of c, which has no room: start a new chunk
+                c = this.linkAfter(c);
+                i = 0;
+            } else {
+                //split the full chunk c, moving its upper half to a new one
+                int half = c.count / 2;
+                Chunk upper = this.linkAfter(c);
+                upper.count = c.count - half;
+                System.arraycopy(c.data, half, upper.data, 0, upper.count);
+                for (int j = half; j < c.count; j++) {
+                    c.data[j] = null;
+                }
+                c.count = half;
+                if (i > half) {
+                    c = upper;
+                    i -= half;
+                    this.current = upper;
+                    this.offset = i;
+                }
+            }
+        }
+
+        //shift the entries from i on one slot to the right, and put x at i
+        System.arraycopy(c.data, i, c.data, i + 1, c.count - i);
+        c.data[i] = x;
+        c.count++;
+        this.rightLength++;
+
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final T removeRightFront() {
+        assert this.rightLength() > 0 : "Violation of: this.right /= <>";
+
+        this.normalize();
+        Chunk c = this.current;
+        T x = c.data[this.offset];
+
+        //shift the entries after offset one slot to the left
+        c.count--;
+        System.arraycopy(c.data, this.offset + 1, c.data, this.offset,
+                c.count - this.offset);
+        c.data[c.count] = null;
+        this.rightLength--;
+
+        if (c.count == 0) {
+            //drop the empty chunk; the position moves to the end of previous
+            this.unlink(c);
+            this.current = c.previous;
+            this.offset = this.current.count;
+        } else {
+            Chunk previous = c.previous;
+            if (previous != this.preStart
+                    && previous.count + c.count <= this.capacity / 2) {
+                this.offset += previous.count;
+                this.current = previous;
+                this.mergeNext(previous);
+                c = previous;
+            }
+            if (c.next != this.postFinish
+                    && c.count + c.next.count <= this.capacity / 2) {
+                this.mergeNext(c);
+            }
+        }
+
+        assert this.conventionHolds();
+
+        return x;
+    }
+
+    @Override
+    public final void advance() {
+        assert this.rightLength() > 0 : "Violation of: this.right /= <>";
+
+        this.normalize();
+        this.offset++;
+        this.rightLength--;
+        this.leftLength++;
+
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void moveToStart() {
+        this.current = this.preStart;
+        this.offset = 0;
+
+        //adjust lengths
+        this.rightLength += this.leftLength;
+        this.leftLength = 0;
+
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final int leftLength() {
+
+        assert this.conventionHolds();
+
+        return this.leftLength;
+    }
+
+    @Override
+    public final int rightLength() {
+
+        assert this.conventionHolds();
+
+        return this.rightLength;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        assert this.conventionHolds();
+        return new UnrolledList3Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code UnrolledList3}.
+     */
+    private final class UnrolledList3Iterator implements Iterator<T> {
+
+        /**
+         * Chunk holding the next entry, if any.
+         */
+        private Chunk chunk;
+
+        /**
+         * Index in {@code chunk} of the next entry.
+         */
+        private int index;
+
+        /**
+         * No-argument constructor.
+         */
+        private UnrolledList3Iterator() {
+            this.chunk = UnrolledList3.this.preStart.next;
+            this.index = 0;
+            assert UnrolledList3.this.conventionHolds();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.chunk != UnrolledList3.this.postFinish;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T x = this.chunk.data[this.index];
+            this.index++;
+            if (this.index == this.chunk.count) {
+                this.chunk = this.chunk.next;
+                this.index = 0;
+            }
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+    /*
+     * Other methods (overridden for performance reasons) ---------------------
+     */
+
+    @Override
+    public final T rightFront() {
+        assert this.rightLength() > 0 : "Violation of: this.right /= <>";
+
+        this.normalize();
+
+        assert this.conventionHolds();
+
+        return this.current.data[this.offset];
+    }
+
+    @Override
+    public final T replaceRightFront(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.rightLength() > 0 : "Violation of: this.right /= <>";
+
+        this.normalize();
+        T replaced = this.current.data[this.offset];
+        this.current.data[this.offset] = x;
+
+        assert this.conventionHolds();
+
+        return replaced;
+    }
+
+    @Override
+    public final void moveToFinish() {
+
+        //the position is at the end of the last chunk
+        this.current = this.postFinish.previous;
+        this.offset = this.current.count;
+
+        //adjust lengths
+        this.leftLength += this.rightLength;
+        this.rightLength = 0;
+
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void retreat() {
+        assert this.leftLength() > 0 : "Violation of: this.left /= <>";
+
+        //step back into the previous chunk if at the start of this one
+        if (this.offset == 0) {
+            this.current = this.current.previous;
+            this.offset = this.current.count;
+        }
+        this.offset--;
+
+        //adjust lengths
+        this.leftLength--;
+        this.rightLength++;
+
+        assert this.conventionHolds();
+    }
+
+}
@@ -0,0 +1,76 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.list.List;
+import components.list.List1L;
+
+/**
+ * Customized JUnit test fixture for {@code UnrolledList3} with chunks of four
+ * entries, so that the kernel tests split and merge chunks.
+ */
+public class UnrolledList3TestSmallChunks extends ListTest {
+
+    /**
+     * Number of entries in a full chunk.
+     */
+    private static final int CHUNK_CAPACITY = 4;
+
+    /**
+     * Number of operations in the mixed-operation test.
+     */
+    private static final int OPERATIONS = 2000;
+
+    /**
+     * Multiplier used to pick operations; it is coprime with every modulus
+     * used below.
+     */
+    private static final int SCRAMBLE = 7919;
+
+    @Override
+    protected final List<String> constructorTest() {
+        return new UnrolledList3<String>(CHUNK_CAPACITY);
+    }
+
+    @Override
+    protected final List<String> constructorRef() {
+        return new List1L<String>();
+    }
+
+    /**
+     * Test a long, deterministic mix of addRightFront, removeRightFront,
+     * advance, retreat, and moves to either end, which splits and merges many
+     * chunks, against the reference implementation after every call.
+     */
+    @Test
+    public final void testMixedOperations() {
+        List<String> list = this.constructorTest();
+        List<String> listExpected = this.constructorRef();
+        final int kinds = 10;
+        for (int i = 0; i < OPERATIONS; i++) {
+            int kind = (int) ((long) i * SCRAMBLE % kinds);
+            if (kind < 4 || listExpected.rightLength() == 0
+                    && listExpected.leftLength() == 0) {
+                list.addRightFront("e" + i);
+                listExpected.addRightFront("e" + i);
+            } else if (kind < 6 && listExpected.rightLength() > 0) {
+                assertEquals(listExpected.removeRightFront(),
+                        list.removeRightFront());
+            } else if (kind < 8 && listExpected.rightLength() > 0) {
+                list.advance();
+                listExpected.advance();
+            } else if (kind == 8 && listExpected.leftLength() > 0) {
+                list.retreat();
+                listExpected.retreat();
+            } else if (i % 2 == 0) {
+                list.moveToStart();
+                listExpected.moveToStart();
+            } else {
+                list.moveToFinish();
+                listExpected.moveToFinish();
+            }
+            assertEquals(listExpected, list);
+        }
+    }
+
+}
@@ -0,0 +1,435 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+
+import components.map.Map;
+import components.map.Map2;
+import components.map.MapSecondary;
+
+/**
+ * Thread-safe {@code Map} represented as a hash table using {@code Map}s for
+ * the buckets, with one lock per bucket, with implementations of primary
+ * methods and an atomic {@code merge}.
+ *
+ * <p>
+ * {@code add}, {@code remove}, {@code value}, {@code hasKey},
+ * {@code replaceValue}, and {@code merge} only lock the bucket of the given
+ * key, so threads working on keys in different buckets never wait for each
+ * other. {@code size} is kept in a {@code LongAdder} so that it is not a
+ * point of contention either. {@code removeAny} locks one bucket at a time.
+ * </p>
+ *
+ * <p>
+ * Because other threads may change {@code this} between two calls, the
+ * {@code requires} clauses of {@code add}, {@code remove}, and {@code value}
+ * are only meaningful if the caller knows no other thread is working on the
+ * same key; {@code merge} is the way to update a key that several threads
+ * share. Likewise, {@code removeAny} needs {@code this} to stay non-empty
+ * until it returns, so callers sharing {@code this} with threads that remove
+ * entries must hold their own lock around it; if every entry is removed
+ * while it scans the buckets, it throws {@code NoSuchElementException} and
+ * leaves the size unchanged. {@code newInstance} aside, the standard methods
+ * and {@code iterator} must not be called while other threads are using
+ * {@code this}.
+ * </p>
+ *
+ * @param <K>
+ *            type of {@code Map} domain (key) entries
+ * @param <V>
+ *            type of {@code Map} range (associated value) entries
+ * @convention <pre>
+ * [$this.hashTable satisfies the convention of Map4]  and
+ * $this.size.sum() = sum i: integer, pf: PARTIAL_FUNCTION
+ *     where (0 <= i  and  i < |$this.hashTable|  and
+ *            <pf> = $this.hashTable[i, i+1))
+ *   (|pf|)
+ * </pre>
+ * @correspondence <pre>
+ * this = union i: integer, pf: PARTIAL_FUNCTION
+ *            where (0 <= i  and  i < |$this.hashTable|  and
+ *                   <pf> = $this.hashTable[i, i+1))
+ *          (pf)
+ * </pre>
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class ConcurrentMap4<K, V> extends MapSecondary<K, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default size of hash table.
+     */
+    private static final int DEFAULT_HASH_TABLE_SIZE = 101;
+
+    /**
+     * Buckets for hashing; each bucket is also the lock guarding it.
+     */
+    private Map<K, V>[] hashTable;
+
+    /**
+     * Total size of abstract {@code this}.
+     */
+    private LongAdder size;
+
+    /**
+     * Computes {@code a} mod {@code b} as % should have been defined to work.
+     *
+     * @param a
+     *            the number being reduced
+     * @param b
+     *            the modulus
+     * @return the result of a mod b, which satisfies 0 <= {@code mod} < b
+     * @requires b > 0
+     * @ensures <pre>
+     * 0 <= mod  and  mod < b  and
+     * there exists k: integer (a = k * b + mod)
+     * </pre>
+     */
+    private static int mod(int a, int b) {
+        assert b > 0 : "Violation of: b > 0";
+
+        int modulo = a % b;
+        if (modulo < 0) {
+            modulo += b;
+        }
+        return modulo;
+    }
+
+    /**
+     * Returns the bucket (and lock) for {@code key}.
+     *
+     * @param key
+     *            the key
+     * @return the bucket for key
+     * @ensures <pre>
+     * bucketFor = $this.hashTable[[computed result of key.hashCode()]
+     *                             mod |$this.hashTable|]
+     * </pre>
+     */
+    private Map<K, V> bucketFor(K key) {
+        return this.hashTable[mod(key.hashCode(), this.hashTable.length)];
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param hashTableSize
+     *            the size of the hash table
+     * @requires hashTableSize > 0
+     * @ensures <pre>
+     * |$this.hashTable| = hashTableSize  and
+     * for all i: integer
+     *     where (0 <= i  and  i < |$this.hashTable|)
+     *   ($this.hashTable[i, i+1) = <{}>)  and
+     * $this.size.sum() = 0
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    private void createNewRep(int hashTableSize) {
+        /*
+         * With "new Map<K, V>[...]" in place of "new Map[...]" it does not
+         * compile; as shown, it results in a warning about an unchecked
+         * conversion, though it cannot fail.
+         */
+        this.size = new LongAdder();
+        this.hashTable = new Map[hashTableSize];
+
+        for (int i = 0; i < this.hashTable.length; i++) {
+            this.hashTable[i] = new Map2<>();
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public ConcurrentMap4() {
+        this.createNewRep(DEFAULT_HASH_TABLE_SIZE);
+    }
+
+    /**
+     * Constructor resulting in a hash table of size {@code hashTableSize}.
+     *
+     * @param hashTableSize
+     *            size of hash table
+     * @requires hashTableSize > 0
+     * @ensures this = {}
+     */
+    public ConcurrentMap4(int hashTableSize) {
+        this.createNewRep(hashTableSize);
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<K, V> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(DEFAULT_HASH_TABLE_SIZE);
+    }
+
+    @Override
+    public final void transferFrom(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof ConcurrentMap4<?, ?> : ""
+                + "Violation of: source is of dynamic type ConcurrentMap4<?,?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * ConcurrentMap4<?,?>, and the ?,? must be K,V or the call would not
+         * have compiled.
+         */
+        ConcurrentMap4<K, V> localSource = (ConcurrentMap4<K, V>) source;
+        this.hashTable = localSource.hashTable;
+        this.size = localSource.size;
+        localSource.createNewRep(DEFAULT_HASH_TABLE_SIZE);
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+        Map<K, V> bucket = this.bucketFor(key);
+        synchronized (bucket) {
+            bucket.add(key, value);
+        }
+        this.size.increment();
+    }
+
+    @Override
+    public final Pair<K, V> remove(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        Map<K, V> bucket = this.bucketFor(key);
+        Pair<K, V> removed;
+        synchronized (bucket) {
+            removed = bucket.remove(key);
+        }
+        this.size.decrement();
+
+        return removed;
+    }
+
+    @Override
+    public final Pair<K, V> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        Pair<K, V> removed = null;
+        int i = 0;
+
+        //lock one bucket at a time until one of them turns out to be non-empty
+        while (removed == null && i < this.hashTable.length) {
+            Map<K, V> bucket = this.hashTable[i];
+            synchronized (bucket) {
+                if (bucket.size() > 0) {
+                    removed = bucket.removeAny();
+                }
+            }
+            i++;
+        }
+        if (removed == null) {
+            /*
+             * Other threads emptied every bucket during the scan, so there is
+             * nothing to remove, and the size must not change.
+             */
+            throw new NoSuchElementException(
+                    "removeAny found every bucket empty");
+        }
+        this.size.decrement();
+
+        return removed;
+    }
+
+    @Override
+    public final V value(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        Map<K, V> bucket = this.bucketFor(key);
+        synchronized (bucket) {
+            return bucket.value(key);
+        }
+    }
+
+    @Override
+    public final boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        Map<K, V> bucket = this.bucketFor(key);
+        synchronized (bucket) {
+            return bucket.hasKey(key);
+        }
+    }
+
+    @Override
+    public final int size() {
+        return this.size.intValue();
+    }
+
+    @Override
+    public final Iterator<Pair<K, V>> iterator() {
+        return new ConcurrentMap4Iterator();
+    }
+
+    /*
+     * Other methods (overridden for atomicity) -------------------------------
+     */
+
+    @Override
+    public final V replaceValue(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        Map<K, V> bucket = this.bucketFor(key);
+        synchronized (bucket) {
+            return bucket.replaceValue(key, value);
+        }
+    }
+
+    /**
+     * Atomically associates {@code key} with {@code value} if it is not in
+     * {@code this}, and otherwise with the result of applying
+     * {@code remapping} to its current value and {@code value}.
+     *
+     * @param key
+     *            the key to update
+     * @param value
+     *            the value to add, or to combine with the current value
+     * @param remapping
+     *            the function combining the current value with {@code value}
+     * @return the value now associated with {@code key}
+     * @aliases references key, value
+     * @updates this
+     * @requires [remapping does not return null and does not use this]
+     * @ensures <pre>
+     * if key is in DOMAIN(#this) then
+     *   this = (#this \ {(key, #this(key))}) union
+     *          {(key, remapping(#this(key), value))}
+     * else
+     *   this = #this union {(key, value)}
+     * and  merge = this(key)
+     * </pre>
+     */
+    public final V merge(K key, V value, BinaryOperator<V> remapping) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert remapping != null : "Violation of: remapping is not null";
+
+        Map<K, V> bucket = this.bucketFor(key);
+        V merged = value;
+        boolean added = false;
+        synchronized (bucket) {
+            if (bucket.hasKey(key)) {
+                merged = remapping.apply(bucket.value(key), value);
+                assert merged != null : "Violation of: remapping does not"
+                        + " return null";
+                bucket.replaceValue(key, merged);
+            } else {
+                bucket.add(key, value);
+                added = true;
+            }
+        }
+        if (added) {
+            this.size.increment();
+        }
+
+        return merged;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code ConcurrentMap4}.
+     */
+    private final class ConcurrentMap4Iterator implements Iterator<Pair<K, V>> {
+
+        /**
+         * Number of elements seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Number of elements when the iterator was created.
+         */
+        private final int total;
+
+        /**
+         * Bucket from which current bucket iterator comes.
+         */
+        private int currentBucket;
+
+        /**
+         * Bucket iterator from which next element will come.
+         */
+        private Iterator<Pair<K, V>> bucketIterator;
+
+        /**
+         * No-argument constructor.
+         */
+        ConcurrentMap4Iterator() {
+            this.numberSeen = 0;
+            this.total = ConcurrentMap4.this.size();
+            this.currentBucket = 0;
+            this.bucketIterator = ConcurrentMap4.this.hashTable[0].iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < this.total;
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.numberSeen++;
+            Map<K, V>[] table = ConcurrentMap4.this.hashTable;
+            while (!this.bucketIterator.hasNext()) {
+                this.currentBucket++;
+                this.bucketIterator = table[this.currentBucket].iterator();
+            }
+            return this.bucketIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,488 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map<Integer, Integer>} represented as an open-addressing hash table
+ * (with linear probing) using parallel {@code int[]}s of keys and values, with
+ * implementations of primary methods and of {@code int}-keyed counting
+ * methods.
+ *
+ * <p>
+ * The kernel methods box and unbox at the boundary, but {@code hasKey(int)},
+ * {@code intValue}, {@code increment}, and {@code addTo} never allocate. The
+ * table grows like the one in {@code Map5}.
+ * </p>
+ *
+ * @convention <pre>
+ * |$this.keys| = |$this.values| = |$this.used|  and
+ * [$this.used plays the role of "$this.keys[i] /= null" in the convention of
+ *  Map5, with MINIMUM_CAPACITY and MAX_LOAD_FACTOR as defined here]  and
+ * for all i: integer
+ *     where (0 <= i  and  i < |$this.keys|  and  not $this.used[i])
+ *   ($this.keys[i] = 0  and  $this.values[i] = 0)
+ * </pre>
+ * @correspondence <pre>
+ * this = {(x, y): (integer, integer)
+ *     where (there exists i: integer
+ *              (0 <= i  and  i < |$this.keys|  and  $this.used[i]  and
+ *               $this.keys[i] = x  and  $this.values[i] = y))}
+ * </pre>
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class IntIntMap extends MapSecondary<Integer, Integer> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default (and minimum) capacity of the table.
+     */
+    private static final int MINIMUM_CAPACITY = 16;
+
+    /**
+     * Largest capacity the table can grow to.
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * Largest fraction of the table allowed to be occupied before it grows.
+     */
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    /**
+     * Keys of the entries.
+     */
+    private int[] keys;
+
+    /**
+     * Values of the entries, parallel to {@code keys}.
+     */
+    private int[] values;
+
+    /**
+     * Whether each slot holds an entry, parallel to {@code keys}.
+     */
+    private boolean[] used;
+
+    /**
+     * Total size of abstract {@code this}.
+     */
+    private int size;
+
+    /**
+     * Every slot before this index is empty.
+     */
+    private int firstOccupied;
+
+    /**
+     * Mixes the high bits of {@code h} into the low bits.
+     *
+     * @param h
+     *            the hash code to spread
+     * @return the spread hash code
+     */
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the index of the slot holding {@code key}, or of the empty slot
+     * that ends its probe sequence if {@code key} is not in the table.
+     *
+     * @param key
+     *            the key to look for
+     * @return the index of the slot
+     * @ensures <pre>
+     * 0 <= findSlot < |$this.keys|  and
+     * (key is in DOMAIN(this)) =
+     *   ($this.used[findSlot]  and  $this.keys[findSlot] = key)  and
+     * (key is not in DOMAIN(this)) = (not $this.used[findSlot])
+     * </pre>
+     */
+    private int findSlot(int key) {
+        int mask = this.keys.length - 1;
+        int i = spread(key) & mask;
+
+        while (this.used[i] && this.keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Removes the entry in slot {@code hole}, shifting later entries of the
+     * same probe run back.
+     *
+     * @param hole
+     *            the index of the slot to empty
+     * @updates $this.keys, $this.values, $this.used
+     * @requires 0 <= hole < |$this.keys|  and  $this.used[hole]
+     * @ensures <pre>
+     * [the entry at slot hole is no longer in the table and the convention
+     *  holds except for $this.size]
+     * </pre>
+     */
+    private void deleteSlot(int hole) {
+        int mask = this.keys.length - 1;
+        int i = hole;
+        int j = (i + 1) & mask;
+
+        while (this.used[j]) {
+            int home = spread(this.keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                this.keys[i] = this.keys[j];
+                this.values[i] = this.values[j];
+                i = j;
+            }
+            j = (j + 1) & mask;
+        }
+        this.keys[i] = 0;
+        this.values[i] = 0;
+        this.used[i] = false;
+    }
+
+    /**
+     * Doubles the table if adding one more entry would push the load factor
+     * above {@code MAX_LOAD_FACTOR}.
+     *
+     * @updates $this.keys, $this.values, $this.used, $this.firstOccupied
+     * @ensures this = #this
+     */
+    private void growIfNeeded() {
+        if (this.size + 1 > MAX_LOAD_FACTOR * this.keys.length
+                && this.keys.length < MAXIMUM_CAPACITY) {
+            int[] oldKeys = this.keys;
+            int[] oldValues = this.values;
+            boolean[] oldUsed = this.used;
+
+            this.allocate(oldKeys.length * 2);
+            int mask = this.keys.length - 1;
+            for (int k = 0; k < oldKeys.length; k++) {
+                if (oldUsed[k]) {
+                    int i = spread(oldKeys[k]) & mask;
+                    while (this.used[i]) {
+                        i = (i + 1) & mask;
+                    }
+                    this.keys[i] = oldKeys[k];
+                    this.values[i] = oldValues[k];
+                    this.used[i] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts {@code key} with {@code value} in empty slot {@code i}.
+     *
+     * @param i
+     *            the empty slot ending the probe sequence of {@code key}
+     * @param key
+     *            the key to add
+     * @param value
+     *            the value to add
+     * @updates this
+     * @requires not $this.used[i]  and  [i = findSlot(key)]
+     * @ensures this = #this union {(key, value)}
+     */
+    private void fillSlot(int i, int key, int value) {
+        this.keys[i] = key;
+        this.values[i] = value;
+        this.used[i] = true;
+        if (i < this.firstOccupied) {
+            this.firstOccupied = i;
+        }
+        this.size++;
+    }
+
+    /**
+     * Allocates empty arrays of size {@code capacity}.
+     *
+     * @param capacity
+     *            the size of the table
+     * @updates $this.keys, $this.values, $this.used, $this.firstOccupied
+     * @requires [capacity is a power of 2]
+     * @ensures <pre>
+     * |$this.keys| = capacity  and  |$this.values| = capacity  and
+     * |$this.used| = capacity  and  [all entries of $this.used are false]  and
+     * $this.firstOccupied = 0
+     * </pre>
+     */
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.used = new boolean[capacity];
+        this.firstOccupied = 0;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.allocate(MINIMUM_CAPACITY);
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public IntIntMap() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Map<Integer, Integer> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Map<Integer, Integer> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof IntIntMap : ""
+                + "Violation of: source is of dynamic type IntIntMap";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        IntIntMap localSource = (IntIntMap) source;
+        this.keys = localSource.keys;
+        this.values = localSource.values;
+        this.used = localSource.used;
+        this.size = localSource.size;
+        this.firstOccupied = localSource.firstOccupied;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(Integer key, Integer value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+        this.growIfNeeded();
+        this.fillSlot(this.findSlot(key), key, value);
+    }
+
+    @Override
+    public final Pair<Integer, Integer> remove(Integer key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        int i = this.findSlot(key);
+        Pair<Integer, Integer> removed = new SimplePair<>(this.keys[i],
+                this.values[i]);
+
+        this.deleteSlot(i);
+        this.size--;
+
+        return removed;
+    }
+
+    @Override
+    public final Pair<Integer, Integer> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        while (!this.used[this.firstOccupied]) {
+            this.firstOccupied++;
+        }
+
+        int i = this.firstOccupied;
+        Pair<Integer, Integer> removed = new SimplePair<>(this.keys[i],
+                this.values[i]);
+
+        this.deleteSlot(i);
+        this.size--;
+
+        return removed;
+    }
+
+    @Override
+    public final Integer value(Integer key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.values[this.findSlot(key)];
+    }
+
+    @Override
+    public final boolean hasKey(Integer key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.used[this.findSlot(key)];
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<Pair<Integer, Integer>> iterator() {
+        return new IntIntMapIterator();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports whether there is a pair in {@code this} whose first component is
+     * {@code key}, without boxing {@code key}.
+     *
+     * @param key
+     *            the key to be checked
+     * @return true iff there is a pair in this whose first component is key
+     * @ensures hasKey = (key is in DOMAIN(this))
+     */
+    public final boolean hasKey(int key) {
+        return this.used[this.findSlot(key)];
+    }
+
+    /**
+     * Reports the value associated with {@code key}, without boxing.
+     *
+     * @param key
+     *            the key whose associated value is to be reported
+     * @return the value associated with key
+     * @requires key is in DOMAIN(this)
+     * @ensures (key, intValue) is in this
+     */
+    public final int intValue(int key) {
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.values[this.findSlot(key)];
+    }
+
+    /**
+     * Adds 1 to the value associated with {@code key}, adding {@code key}
+     * with value 1 if it is not yet in {@code this}.
+     *
+     * @param key
+     *            the key whose count is to be incremented
+     * @updates this
+     * @ensures <pre>
+     * if key is in DOMAIN(#this) then
+     *   this = (#this \ {(key, #this(key))}) union {(key, #this(key) + 1)}
+     * else
+     *   this = #this union {(key, 1)}
+     * </pre>
+     */
+    public final void increment(int key) {
+        this.addTo(key, 1);
+    }
+
+    /**
+     * Adds {@code delta} to the value associated with {@code key}, adding
+     * {@code key} with value {@code delta} if it is not yet in {@code this}.
+     *
+     * @param key
+     *            the key whose value is to be updated
+     * @param delta
+     *            the amount to add
+     * @updates this
+     * @ensures <pre>
+     * if key is in DOMAIN(#this) then
+     *   this = (#this \ {(key, #this(key))}) union {(key, #this(key) + delta)}
+     * else
+     *   this = #this union {(key, delta)}
+     * </pre>
+     */
+    public final void addTo(int key, int delta) {
+        int i = this.findSlot(key);
+        if (this.used[i]) {
+            this.values[i] += delta;
+        } else {
+            //the table may grow, so the slot has to be found again after
+            this.growIfNeeded();
+            this.fillSlot(this.findSlot(key), key, delta);
+        }
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code IntIntMap}.
+     */
+    private final class IntIntMapIterator
+            implements Iterator<Pair<Integer, Integer>> {
+
+        /**
+         * Number of elements seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Slot at which to start looking for the next element.
+         */
+        private int currentSlot;
+
+        /**
+         * No-argument constructor.
+         */
+        IntIntMapIterator() {
+            this.numberSeen = 0;
+            this.currentSlot = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < IntIntMap.this.size;
+        }
+
+        @Override
+        public Pair<Integer, Integer> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.numberSeen++;
+            while (!IntIntMap.this.used[this.currentSlot]) {
+                this.currentSlot++;
+            }
+            Pair<Integer, Integer> next = new SimplePair<>(
+                    IntIntMap.this.keys[this.currentSlot],
+                    IntIntMap.this.values[this.currentSlot]);
+            this.currentSlot++;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -1,5 +1,9 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.IntUnaryOperator;
 
 import components.map.Map;
 import components.map.Map2;
@@ -9,6 +13,49 @@ import components.map.MapSecondary;
  * {@code Map} represented as a hash table using {@code Map}s for the buckets,
  * with implementations of primary methods.
  *
+ * <p>
+ * By default the number of buckets is fixed. A {@code Map4} constructed with
+ * incremental growth enabled instead doubles its table once the load factor
+ * passes {@code MAX_LOAD_FACTOR}, and then moves at most
+ * {@code MIGRATION_STEP} buckets of the old table into the new one on each
+ * {@code add}, {@code remove}, {@code removeAny}, {@code value}, and
+ * {@code hasKey} call, so none of those calls ever pays for the whole
+ * resize. While a migration is running, keys are looked up in both tables.
+ * </p>
+ *
+ * <p>
+ * That bound covers the single-key kernel methods only. {@code iterator},
+ * {@code addAll}, {@code removeAll}, and {@code hasKeys} first finish a
+ * running migration in one go, and {@code addAll} then grows the table in one
+ * go if the batch would push the load factor past {@code MAX_LOAD_FACTOR},
+ * so any of them can take time proportional to the size of the map, even for
+ * a batch of one key. (Iterating takes that long anyway; finishing the
+ * migration first lets the iterator walk a single table that lookups made
+ * during the iteration cannot rearrange.)
+ * </p>
+ *
+ * <p>
+ * Hash codes go through a configurable spreading function before being
+ * reduced to a bucket index. The default, {@code IDENTITY_SPREAD}, uses
+ * {@code hashCode} as is; {@code MURMUR_SPREAD} and {@code seededSpread} mix
+ * the bits first, so keys with poor hash codes (sequential integers, strings
+ * with shared prefixes) still spread over the whole table. {@code statistics}
+ * reports how evenly the keys are spread and how much work lookups do.
+ * </p>
+ *
+ * <p>
+ * {@code addAll}, {@code removeAll}, and {@code hasKeys} handle a whole batch
+ * of keys at once: they hash every key once, grow the table (if incremental
+ * growth is enabled) at most once for the whole batch, and then visit the
+ * keys grouped by bucket.
+ * </p>
+ *
+ * <p>
+ * Which buckets are non-empty is also tracked in a bitmap, so
+ * {@code removeAny}, {@code clear}, and iteration jump straight to live
+ * buckets instead of walking every empty one.
+ * </p>
+ *
  * @param <K>
  *            type of {@code Map} domain (key) entries
  * @param <V>
@@ -19,20 +66,48 @@ import components.map.MapSecondary;
  *     where (0 <= i  and  i < |$this.hashTable|  and
  *            <pf> = $this.hashTable[i, i+1)  and
  *            x is in DOMAIN(pf))
- *   ([computed result of x.hashCode()] mod |$this.hashTable| = i))  and
+ *   ([computed result of $this.spreader(x.hashCode())]
+ *      mod |$this.hashTable| = i))  and
  * for all i: integer
  *     where (0 <= i  and  i < |$this.hashTable|)
  *   ([entry at position i in $this.hashTable is not null])  and
- * $this.size = sum i: integer, pf: PARTIAL_FUNCTION
+ * if $this.oldTable /= null then
+ *   ($this.incrementalGrowth  and
+ *    0 <= $this.migrationIndex < |$this.oldTable|  and
+ *    for all i: integer, pf: PARTIAL_FUNCTION, x: K
+ *        where (0 <= i  and  i < |$this.oldTable|  and
+ *               <pf> = $this.oldTable[i, i+1)  and
+ *               x is in DOMAIN(pf))
+ *      ([computed result of $this.spreader(x.hashCode())]
+ *         mod |$this.oldTable| = i  and
+ *       i >= $this.migrationIndex  and
+ *       [x is not in the domain of any bucket of $this.hashTable]))  and
+ * $this.size = (sum i: integer, pf: PARTIAL_FUNCTION
  *     where (0 <= i  and  i < |$this.hashTable|  and
  *            <pf> = $this.hashTable[i, i+1))
- *   (|pf|)
+ *   (|pf|)) +
+ *   [total size of the buckets of $this.oldTable, or 0 if it is null]  and
+ * |$this.occupied| = ceiling(|$this.hashTable| / 64)  and
+ * for all i: integer
+ *     where (0 <= i  and  i < |$this.hashTable|)
+ *   ([bit i of $this.occupied is set] = ($this.hashTable[i] /= {}))  and
+ * [all bits of $this.occupied at or after |$this.hashTable| are clear]  and
+ * if $this.oldTable = null then
+ *   $this.oldOccupied = null
+ * else
+ *   [$this.oldOccupied is to $this.oldTable as $this.occupied is to
+ *    $this.hashTable]  and
+ * 0 <= $this.firstOccupied <= |$this.hashTable|  and
+ * for all i: integer
+ *     where (0 <= i  and  i < $this.firstOccupied)
+ *   ($this.hashTable[i] = {})
  * </pre>
  * @correspondence <pre>
- * this = union i: integer, pf: PARTIAL_FUNCTION
+ * this = (union i: integer, pf: PARTIAL_FUNCTION
  *            where (0 <= i  and  i < |$this.hashTable|  and
  *                   <pf> = $this.hashTable[i, i+1))
- *          (pf)
+ *          (pf)) union
+ *        [union of the buckets of $this.oldTable, or {} if it is null]
  * </pre>
  *
  * @author Jared Malto and Kelvin Nguyen
@@ -49,6 +124,18 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      */
     private static final int DEFAULT_HASH_TABLE_SIZE = 101;
 
+    /**
+     * Average number of entries per bucket above which a table with
+     * incremental growth enabled starts growing.
+     */
+    private static final int MAX_LOAD_FACTOR = 2;
+
+    /**
+     * Largest number of old buckets migrated by a single operation while the
+     * table is growing.
+     */
+    static final int MIGRATION_STEP = 2;
+
     /**
      * Buckets for hashing.
      */
@@ -59,6 +146,62 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      */
     private int size;
 
+    /**
+     * Whether the table grows (incrementally) as entries are added.
+     */
+    private boolean incrementalGrowth;
+
+    /**
+     * Buckets still being migrated into {@code hashTable}, or null if no
+     * migration is running.
+     */
+    private Map<K, V>[] oldTable;
+
+    /**
+     * Index of the next bucket of {@code oldTable} to migrate.
+     */
+    private int migrationIndex;
+
+    /**
+     * Number of buckets visited by the most recent operation.
+     */
+    private int bucketsTouched;
+
+    /**
+     * Number of buckets of old tables migrated since {@code this} was created.
+     */
+    private long bucketsMigrated;
+
+    /**
+     * Function applied to hash codes before reducing them to bucket indices.
+     */
+    private IntUnaryOperator spreader;
+
+    /**
+     * Number of lookups done through {@code bucketFor}.
+     */
+    private long lookups;
+
+    /**
+     * Total size of the buckets searched by those lookups.
+     */
+    private long probes;
+
+    /**
+     * Bitmap with bit i set iff bucket i of {@code hashTable} is non-empty.
+     */
+    private long[] occupied;
+
+    /**
+     * Bitmap of the non-empty buckets of {@code oldTable}, or null.
+     */
+    private long[] oldOccupied;
+
+    /**
+     * Every bucket of {@code hashTable} before this index is empty.
+     */
+    private int firstOccupied;
+
     /**
      * Computes {@code a} mod {@code b} as % should have been defined to work.
      *
@@ -83,6 +226,36 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         return modulo;
     }
 
+    /**
+     * Murmur3 32-bit finalizer: a bijection on {@code int} in which every bit
+     * of {@code h} affects every bit of the result.
+     *
+     * @param h
+     *            the hash code to mix
+     * @return the mixed hash code
+     */
+    private static int murmurMix(int h) {
+        int x = h;
+        x ^= x >>> 16;
+        x *= 0x85ebca6b;
+        x ^= x >>> 13;
+        x *= 0xc2b2ae35;
+        x ^= x >>> 16;
+        return x;
+    }
+
+    /**
+     * Returns the spread hash code of {@code key}.
+     *
+     * @param key
+     *            the key
+     * @return the spread hash code
+     * @ensures hash = [computed result of $this.spreader(key.hashCode())]
+     */
+    private int hash(K key) {
+        return this.spreader.applyAsInt(key.hashCode());
+    }
+
     /**
      * Creator of initial representation.
      *
@@ -97,21 +270,449 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      * $this.size = 0
      * </pre>
      */
-    @SuppressWarnings("unchecked")
     private void createNewRep(int hashTableSize) {
+        this.size = 0;
+        this.hashTable = newTable(hashTableSize);
+        this.occupied = newBitmap(hashTableSize);
+        this.firstOccupied = 0;
+        this.oldTable = null;
+        this.oldOccupied = null;
+        this.migrationIndex = 0;
+
+    }
+
+    /**
+     * Returns a bitmap with room for {@code bits} bits, all clear.
+     *
+     * @param bits
+     *            the number of bits needed
+     * @return the new bitmap
+     * @requires bits >= 0
+     * @ensures <pre>
+     * |newBitmap| = ceiling(bits / 64)  and  [all bits of newBitmap are clear]
+     * </pre>
+     */
+    private static long[] newBitmap(int bits) {
+        return new long[(bits + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * Sets or clears bit {@code i} of {@code bitmap}.
+     *
+     * @param bitmap
+     *            the bitmap
+     * @param i
+     *            the index of the bit
+     * @param value
+     *            whether the bit should be set
+     * @updates bitmap
+     * @requires 0 <= i < 64 * |bitmap|
+     * @ensures <pre>
+     * [bit i of bitmap is set] = value  and
+     * [the other bits of bitmap are unchanged]
+     * </pre>
+     */
+    private static void setBit(long[] bitmap, int i, boolean value) {
+        if (value) {
+            bitmap[i / Long.SIZE] |= 1L << i;
+        } else {
+            bitmap[i / Long.SIZE] &= ~(1L << i);
+        }
+    }
+
+    /**
+     * Returns the index of the first set bit of {@code bitmap} at or after
+     * {@code from}, or -1 if there is none.
+     *
+     * @param bitmap
+     *            the bitmap
+     * @param from
+     *            the index to start looking at
+     * @return the index of the next set bit, or -1
+     * @requires from >= 0
+     * @ensures <pre>
+     * if [some bit of bitmap at or after from is set] then
+     *   nextSetBit >= from  and  [bit nextSetBit of bitmap is set]  and
+     *   [no bit of bitmap in [from, nextSetBit) is set]
+     * else
+     *   nextSetBit = -1
+     * </pre>
+     */
+    private static int nextSetBit(long[] bitmap, int from) {
+        int next = -1;
+        int word = from / Long.SIZE;
+        if (word < bitmap.length) {
+            //ignore the bits of the first word that come before from
+            long bits = bitmap[word] & (-1L << from);
+            while (bits == 0 && word + 1 < bitmap.length) {
+                word++;
+                bits = bitmap[word];
+            }
+            if (bits != 0) {
+                next = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Records that bucket {@code i} of {@code hashTable} may have just become
+     * non-empty.
+     *
+     * @param i
+     *            the index of the bucket
+     * @updates $this.occupied, $this.firstOccupied
+     * @requires 0 <= i < |$this.hashTable|  and  $this.hashTable[i] /= {}
+     * @ensures [the convention holds for $this.occupied and
+     *           $this.firstOccupied]
+     */
+    private void markOccupied(int i) {
+        setBit(this.occupied, i, true);
+        if (i < this.firstOccupied) {
+            this.firstOccupied = i;
+        }
+    }
+
+    /**
+     * Records that {@code bucket}, which {@code key} hashes to, may have just
+     * become empty.
+     *
+     * @param key
+     *            a key that hashes to {@code bucket}
+     * @param bucket
+     *            the bucket an entry was just removed from
+     * @updates $this.occupied, $this.oldOccupied
+     * @requires [bucket is the bucket of $this.hashTable or $this.oldTable that
+     *           key hashes to]
+     * @ensures [the convention holds for $this.occupied and $this.oldOccupied]
+     */
+    private void unmarkIfEmpty(K key, Map<K, V> bucket) {
+        if (bucket.size() == 0) {
+            int hash = this.hash(key);
+            int oldBucket = -1;
+            if (this.oldTable != null) {
+                oldBucket = mod(hash, this.oldTable.length);
+            }
+            if (oldBucket >= 0 && this.oldTable[oldBucket] == bucket) {
+                setBit(this.oldOccupied, oldBucket, false);
+            } else {
+                setBit(this.occupied, mod(hash, this.hashTable.length), false);
+            }
+        }
+    }
+
+    /**
+     * Returns a new array of {@code hashTableSize} empty buckets.
+     *
+     * @param <K>
+     *            type of bucket domain (key) entries
+     * @param <V>
+     *            type of bucket range (associated value) entries
+     * @param hashTableSize
+     *            the number of buckets
+     * @return the new buckets
+     * @requires hashTableSize > 0
+     * @ensures <pre>
+     * |newTable| = hashTableSize  and
+     * for all i: integer
+     *     where (0 <= i  and  i < |newTable|)
+     *   (newTable[i, i+1) = <{}>)
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V>[] newTable(int hashTableSize) {
         /*
          * With "new Map<K, V>[...]" in place of "new Map[...]" it does not
          * compile; as shown, it results in a warning about an unchecked
          * conversion, though it cannot fail.
          */
-        this.size = 0;
-        this.hashTable = new Map[hashTableSize];
+        Map<K, V>[] table = new Map[hashTableSize];
 
         //fill the hashTable array with smaller maps to hash data
-        for (int i = 0; i < this.hashTable.length; i++) {
-            this.hashTable[i] = new Map2<>();
+        for (int i = 0; i < table.length; i++) {
+            table[i] = new Map2<>();
         }
+        return table;
+    }
+
+    /**
+     * Migrates up to {@code MIGRATION_STEP} buckets of {@code oldTable} into
+     * {@code hashTable}, adding them to the count of buckets touched by the
+     * current operation. Does nothing if no migration is running.
+     *
+     * @updates $this.hashTable, $this.oldTable, $this.migrationIndex
+     * @ensures this = #this
+     */
+    private void rehashStep() {
+        if (this.oldTable != null) {
+            int step = 0;
+            while (step < MIGRATION_STEP
+                    && this.migrationIndex < this.oldTable.length) {
+                Map<K, V> bucket = this.oldTable[this.migrationIndex];
+                //move every entry of this old bucket to its new bucket
+                while (bucket.size() > 0) {
+                    Pair<K, V> p = bucket.removeAny();
+                    int newBucket = mod(this.hash(p.key()),
+                            this.hashTable.length);
+                    this.hashTable[newBucket].add(p.key(), p.value());
+                    this.markOccupied(newBucket);
+                }
+                setBit(this.oldOccupied, this.migrationIndex, false);
+                this.migrationIndex++;
+                this.bucketsTouched++;
+                this.bucketsMigrated++;
+                step++;
+            }
+            //once every old bucket is moved, the old table can be dropped
+            if (this.migrationIndex == this.oldTable.length) {
+                this.oldTable = null;
+                this.oldOccupied = null;
+                this.migrationIndex = 0;
+            }
+        }
+    }
+
+    /**
+     * Starts migrating to a table about twice as large if incremental growth
+     * is enabled, no migration is running, and the load factor is above
+     * {@code MAX_LOAD_FACTOR}.
+     *
+     * @updates $this.hashTable, $this.oldTable, $this.migrationIndex
+     * @ensures this = #this
+     */
+    private void growIfNeeded() {
+        if (this.incrementalGrowth && this.oldTable == null
+                && this.size > MAX_LOAD_FACTOR * this.hashTable.length) {
+            this.oldTable = this.hashTable;
+            this.oldOccupied = this.occupied;
+            this.migrationIndex = 0;
+            //keep the number of buckets odd
+            this.hashTable = newTable(2 * this.oldTable.length + 1);
+            this.occupied = newBitmap(this.hashTable.length);
+            this.firstOccupied = this.hashTable.length;
+        }
+    }
+
+    /**
+     * Runs the migration to the larger table, if one is running, to the end.
+     *
+     * @updates $this.hashTable, $this.oldTable, $this.migrationIndex
+     * @ensures this = #this  and  $this.oldTable = null
+     */
+    private void finishMigration() {
+        while (this.oldTable != null) {
+            this.rehashStep();
+        }
+    }
+
+    /**
+     * Makes room for {@code expectedSize} entries in one step: if incremental
+     * growth is enabled and {@code expectedSize} entries would push the load
+     * factor above {@code MAX_LOAD_FACTOR}, moves every entry into a table
+     * large enough for them. Tables without incremental growth keep their
+     * size.
+     *
+     * @param expectedSize
+     *            the number of entries to make room for
+     * @updates $this.hashTable
+     * @requires $this.oldTable = null
+     * @ensures this = #this
+     */
+    private void ensureCapacity(int expectedSize) {
+        assert this.oldTable == null : "Violation of: $this.oldTable = null";
+
+        int length = this.hashTable.length;
+        if (this.incrementalGrowth) {
+            //grow the way growIfNeeded does, but all the way in one go
+            while ((long) MAX_LOAD_FACTOR * length < expectedSize) {
+                length = 2 * length + 1;
+            }
+        }
+        if (length != this.hashTable.length) {
+            Map<K, V>[] table = newTable(length);
+            long[] bitmap = newBitmap(length);
+            int first = length;
+            int i = nextSetBit(this.occupied, 0);
+            while (i >= 0) {
+                Map<K, V> bucket = this.hashTable[i];
+                while (bucket.size() > 0) {
+                    Pair<K, V> p = bucket.removeAny();
+                    int newBucket = mod(this.hash(p.key()), length);
+                    table[newBucket].add(p.key(), p.value());
+                    setBit(bitmap, newBucket, true);
+                    first = Math.min(first, newBucket);
+                }
+                i = nextSetBit(this.occupied, i + 1);
+            }
+            this.hashTable = table;
+            this.occupied = bitmap;
+            this.firstOccupied = first;
+        }
+    }
+
+    /**
+     * Returns the bucket index in {@code hashTable} of each entry of
+     * {@code keys}.
+     *
+     * @param keys
+     *            the keys
+     * @return the bucket indices
+     * @requires $this.oldTable = null
+     * @ensures <pre>
+     * |bucketIndices| = |keys|  and
+     * for all i: integer
+     *     where (0 <= i  and  i < |keys|)
+     *   (bucketIndices[i] = [computed result of
+     *                        $this.spreader(keys[i].hashCode())]
+     *                       mod |$this.hashTable|)
+     * </pre>
+     */
+    private int[] bucketIndices(ArrayList<K> keys) {
+        int[] buckets = new int[keys.size()];
+        for (int i = 0; i < buckets.length; i++) {
+            K key = keys.get(i);
+            assert key != null : "Violation of: key is not null";
+            buckets[i] = mod(this.hash(key), this.hashTable.length);
+        }
+        return buckets;
+    }
+
+    /**
+     * Returns the positions of {@code buckets} ordered by bucket index, so
+     * that the keys in each bucket can be handled together.
+     *
+     * @param buckets
+     *            the bucket index of each key
+     * @param tableLength
+     *            the number of buckets
+     * @return the positions, ordered by bucket index
+     * @requires for all i (0 <= buckets[i] < tableLength)
+     * @ensures <pre>
+     * [orderByBucket is a permutation of 0, 1, ..., |buckets| - 1]  and
+     * for all i: integer
+     *     where (0 < i  and  i < |buckets|)
+     *   (buckets[orderByBucket[i - 1]] <= buckets[orderByBucket[i]])
+     * </pre>
+     */
+    private static int[] orderByBucket(int[] buckets, int tableLength) {
+        int[] order = new int[buckets.length];
+        if (buckets.length >= tableLength / 2) {
+            /*
+             * counting sort: linear in the batch plus the table, which is
+             * fine when the batch is at least comparable to the table
+             */
+            int[] start = new int[tableLength + 1];
+            for (int b : buckets) {
+                start[b + 1]++;
+            }
+            for (int b = 0; b < tableLength; b++) {
+                start[b + 1] += start[b];
+            }
+            for (int i = 0; i < buckets.length; i++) {
+                order[start[buckets[i]]] = i;
+                start[buckets[i]]++;
+            }
+        } else {
+            //small batch in a large table: sort (bucket, position) pairs
+            long[] packed = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                packed[i] = ((long) buckets[i] << Integer.SIZE) | i;
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < packed.length; i++) {
+                order[i] = (int) packed[i];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Reports whether {@code key} is in {@code this}, without migrating any
+     * buckets or counting the buckets it visits, so that checking the
+     * preconditions of a kernel method does not change what the method does.
+     *
+     * @param key
+     *            the key to look for
+     * @return true iff key is in DOMAIN(this)
+     * @ensures inDomain = (key is in DOMAIN(this))
+     */
+    private boolean inDomain(K key) {
+        int hash = this.hash(key);
+        boolean found = this.hashTable[mod(hash, this.hashTable.length)]
+                .hasKey(key);
+        if (!found && this.oldTable != null) {
+            int oldBucket = mod(hash, this.oldTable.length);
+            found = oldBucket >= this.migrationIndex
+                    && this.oldTable[oldBucket].hasKey(key);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the bucket that holds {@code key}, or, if {@code key} is not in
+     * {@code this}, the bucket of {@code hashTable} it would be added to.
+     *
+     * @param key
+     *            the key to look for
+     * @return the bucket for {@code key}
+     * @ensures <pre>
+     * if key is in DOMAIN(this) then
+     *   key is in DOMAIN(bucketFor)
+     * else
+     *   bucketFor = $this.hashTable[[computed result of
+     *                                $this.spreader(key.hashCode())]
+     *                               mod |$this.hashTable|]
+     * </pre>
+     */
+    private Map<K, V> bucketFor(K key) {
+        int hash = this.hash(key);
+        Map<K, V> bucket = null;
+        this.lookups++;
+
+        //keys in old buckets that have not been migrated yet are still there
+        if (this.oldTable != null) {
+            int oldBucket = mod(hash, this.oldTable.length);
+            if (oldBucket >= this.migrationIndex) {
+                this.bucketsTouched++;
+                this.probes += this.oldTable[oldBucket].size();
+                if (this.oldTable[oldBucket].hasKey(key)) {
+                    bucket = this.oldTable[oldBucket];
+                }
+            }
+        }
+        if (bucket == null) {
+            this.bucketsTouched++;
+            bucket = this.hashTable[mod(hash, this.hashTable.length)];
+            this.probes += bucket.size();
+        }
+        return bucket;
+    }
+
+    /*
+     * Hash spreading functions -----------------------------------------------
+     */
+
+    /**
+     * Spreading function that leaves hash codes unchanged.
+     */
+    public static final IntUnaryOperator IDENTITY_SPREAD = h -> h;
+
+    /**
+     * Spreading function that mixes hash codes with the Murmur3 finalizer.
+     */
+    public static final IntUnaryOperator MURMUR_SPREAD = Map4::murmurMix;
 
+    /**
+     * Returns a spreading function that mixes hash codes with the Murmur3
+     * finalizer after combining them with {@code seed}, so that which keys
+     * collide differs from one seed to another.
+     *
+     * @param seed
+     *            the seed
+     * @return the seeded spreading function
+     */
+    public static IntUnaryOperator seededSpread(int seed) {
+        return h -> murmurMix(h ^ murmurMix(seed));
     }
 
     /*
@@ -123,6 +724,7 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      */
     public Map4() {
         //create new rep with the default table size
+        this.spreader = IDENTITY_SPREAD;
         this.createNewRep(DEFAULT_HASH_TABLE_SIZE);
     }
 
@@ -136,6 +738,52 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      */
     public Map4(int hashTableSize) {
 
+        this.spreader = IDENTITY_SPREAD;
+        this.createNewRep(hashTableSize);
+
+    }
+
+    /**
+     * Constructor resulting in a hash table of initial size
+     * {@code hashTableSize} that grows incrementally if
+     * {@code incrementalGrowth} is true.
+     *
+     * @param hashTableSize
+     *            initial size of hash table
+     * @param incrementalGrowth
+     *            whether the hash table grows as entries are added
+     * @requires hashTableSize > 0
+     * @ensures this = {}
+     */
+    public Map4(int hashTableSize, boolean incrementalGrowth) {
+
+        this.incrementalGrowth = incrementalGrowth;
+        this.spreader = IDENTITY_SPREAD;
+        this.createNewRep(hashTableSize);
+
+    }
+
+    /**
+     * Constructor resulting in a hash table of initial size
+     * {@code hashTableSize} that grows incrementally if
+     * {@code incrementalGrowth} is true, and that applies {@code spreader} to
+     * hash codes before reducing them to bucket indices.
+     *
+     * @param hashTableSize
+     *            initial size of hash table
+     * @param incrementalGrowth
+     *            whether the hash table grows as entries are added
+     * @param spreader
+     *            the hash spreading function
+     * @requires hashTableSize > 0  and  [spreader is a function]
+     * @ensures this = {}
+     */
+    public Map4(int hashTableSize, boolean incrementalGrowth,
+            IntUnaryOperator spreader) {
+        assert spreader != null : "Violation of: spreader is not null";
+
+        this.incrementalGrowth = incrementalGrowth;
+        this.spreader = spreader;
         this.createNewRep(hashTableSize);
 
     }
@@ -148,7 +796,11 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     @Override
     public final Map<K, V> newInstance() {
         try {
-            return this.getClass().getConstructor().newInstance();
+            return this.getClass()
+                    .getConstructor(int.class, boolean.class,
+                            IntUnaryOperator.class)
+                    .newInstance(DEFAULT_HASH_TABLE_SIZE,
+                            this.incrementalGrowth, this.spreader);
         } catch (ReflectiveOperationException e) {
             throw new AssertionError(
                     "Cannot construct object of type " + this.getClass());
@@ -157,7 +809,21 @@ public class Map4<K, V> extends MapSecondary<K, V> {
 
     @Override
     public final void clear() {
-        this.createNewRep(DEFAULT_HASH_TABLE_SIZE);
+        /*
+         * keep the current table and only empty the buckets that are in use,
+         * rather than allocating a fresh bucket for every slot
+         */
+        int i = nextSetBit(this.occupied, 0);
+        while (i >= 0) {
+            this.hashTable[i].clear();
+            i = nextSetBit(this.occupied, i + 1);
+        }
+        this.occupied = newBitmap(this.hashTable.length);
+        this.firstOccupied = 0;
+        this.oldTable = null;
+        this.oldOccupied = null;
+        this.migrationIndex = 0;
+        this.size = 0;
     }
 
     @Override
@@ -174,6 +840,13 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         Map4<K, V> localSource = (Map4<K, V>) source;
         this.hashTable = localSource.hashTable;
         this.size = localSource.size;
+        this.incrementalGrowth = localSource.incrementalGrowth;
+        this.spreader = localSource.spreader;
+        this.oldTable = localSource.oldTable;
+        this.migrationIndex = localSource.migrationIndex;
+        this.occupied = localSource.occupied;
+        this.oldOccupied = localSource.oldOccupied;
+        this.firstOccupied = localSource.firstOccupied;
         localSource.createNewRep(DEFAULT_HASH_TABLE_SIZE);
     }
 
@@ -185,81 +858,110 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     public final void add(K key, V value) {
         assert key != null : "Violation of: key is not null";
         assert value != null : "Violation of: value is not null";
-        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+        assert !this.inDomain(key) : ""
+                + "Violation of: key is not in DOMAIN(this)";
+
+        this.bucketsTouched = 0;
+        this.rehashStep();
 
         /*
          * determine which "bucket" to put the hashcode in by taking the mod of
-         * the key's hashCode by the table length
+         * the key's hashCode by the table length; new keys always go in the
+         * new table while a migration is running
          */
-        int bucket = mod(key.hashCode(), this.hashTable.length);
+        int bucket = mod(this.hash(key), this.hashTable.length);
 
         //add the elements into the bucket-th index's smaller map
         this.hashTable[bucket].add(key, value);
+        this.markOccupied(bucket);
+        this.bucketsTouched++;
 
         //increment the size
         this.size++;
+
+        this.growIfNeeded();
     }
 
     @Override
     public final Pair<K, V> remove(K key) {
         assert key != null : "Violation of: key is not null";
-        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+        assert this.inDomain(key) : "Violation of: key is in DOMAIN(this)";
 
-        //find which bucket the key would belong in
-        int bucket = mod(key.hashCode(), this.hashTable.length);
+        this.bucketsTouched = 0;
+        this.rehashStep();
 
         //decrement the size
         this.size--;
 
-        //directly access the bucket's index in the array and remove from the map
-        return this.hashTable[bucket].remove(key);
+        //directly access the key's bucket and remove from the map
+        Map<K, V> bucket = this.bucketFor(key);
+        Pair<K, V> removed = bucket.remove(key);
+        this.unmarkIfEmpty(key, bucket);
+
+        return removed;
     }
 
     @Override
     public final Pair<K, V> removeAny() {
         assert this.size() > 0 : "Violation of: this /= empty_set";
 
-        boolean indexIsEmpty = true;
-        int i = 0;
+        this.bucketsTouched = 0;
+        this.rehashStep();
+
+        //drain what is left of the old table first
+        Map<K, V>[] table = this.hashTable;
+        long[] bitmap = this.occupied;
+        int i = -1;
+        if (this.oldTable != null) {
+            i = nextSetBit(this.oldOccupied, this.migrationIndex);
+            if (i >= 0) {
+                table = this.oldTable;
+                bitmap = this.oldOccupied;
+            }
+        }
 
         /*
-         * we only want to iterate to the next index if there are more to check
-         * or the current index isn't empty
+         * every bucket before firstOccupied is known to be empty, so jump from
+         * there straight to the next live bucket; draining the whole map this
+         * way is linear in the number of buckets
          */
-        while (i < this.hashTable.length && indexIsEmpty) {
-            if (this.hashTable[i].size() > 0) {
-                //if the map at the i'th index isn't empty then well just remove from there
-                indexIsEmpty = false;
-            } else {
-                //only increment if current index is empty to avoid over-indexing
-                i++;
-            }
+        if (i < 0) {
+            i = nextSetBit(this.occupied, this.firstOccupied);
+            this.firstOccupied = i;
         }
 
         this.size--;
 
         //remove anything from the current index
-        return this.hashTable[i].removeAny();
+        Pair<K, V> removed = table[i].removeAny();
+        if (table[i].size() == 0) {
+            setBit(bitmap, i, false);
+        }
+
+        return removed;
 
     }
 
     @Override
     public final V value(K key) {
         assert key != null : "Violation of: key is not null";
-        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+        assert this.inDomain(key) : "Violation of: key is in DOMAIN(this)";
+
+        this.bucketsTouched = 0;
+        this.rehashStep();
 
-        int bucket = mod(key.hashCode(), this.hashTable.length);
-        return this.hashTable[bucket].value(key);
+        return this.bucketFor(key).value(key);
     }
 
     @Override
     public final boolean hasKey(K key) {
         assert key != null : "Violation of: key is not null";
 
-        int bucket = mod(key.hashCode(), this.hashTable.length);
+        this.bucketsTouched = 0;
+        this.rehashStep();
 
-        //directly access the bucket's index in the array and call hasKey
-        return this.hashTable[bucket].hasKey(key);
+        //directly access the key's bucket and call hasKey
+        return this.bucketFor(key).hasKey(key);
     }
 
     @Override
@@ -270,11 +972,395 @@ public class Map4<K, V> extends MapSecondary<K, V> {
 
     @Override
     public final Iterator<Pair<K, V>> iterator() {
+        /*
+         * Iterating is O(size) anyway, so the migration is finished first;
+         * then lookups made during the iteration have nothing to migrate.
+         */
+        this.bucketsTouched = 0;
+        this.finishMigration();
         return new Map4Iterator();
     }
 
+    /*
+     * Bulk methods -----------------------------------------------------------
+     */
+
+    /**
+     * Adds every pair produced by {@code pairs} to {@code this}. The table is
+     * grown at most once, to fit the whole batch, and the pairs are then added
+     * bucket by bucket.
+     *
+     * <p>
+     * Unlike {@code add}, this does not spread the work of growing over later
+     * calls: it finishes a running migration, and moves every entry into a
+     * larger table if the batch needs one, before adding anything, so it can
+     * take time proportional to {@code |this|} even for a single pair.
+     * </p>
+     *
+     * @param pairs
+     *            the pairs to add
+     * @updates this
+     * @requires <pre>
+     * [the keys of the pairs produced by pairs are distinct, are not null,
+     *  and are not in DOMAIN(this)]  and
+     * [the values of the pairs produced by pairs are not null]  and
+     * [pairs does not iterate over this]
+     * </pre>
+     * @ensures <pre>
+     * this = #this union [the set of pairs produced by pairs]
+     * </pre>
+     */
+    public final void addAll(Iterator<Pair<K, V>> pairs) {
+        assert pairs != null : "Violation of: pairs is not null";
+
+        ArrayList<Pair<K, V>> batch = new ArrayList<>();
+        ArrayList<K> keys = new ArrayList<>();
+        while (pairs.hasNext()) {
+            Pair<K, V> p = pairs.next();
+            assert p.value() != null : "Violation of: value is not null";
+            batch.add(p);
+            keys.add(p.key());
+        }
+
+        this.bucketsTouched = 0;
+        this.finishMigration();
+        this.ensureCapacity(this.size + batch.size());
+
+        int[] buckets = this.bucketIndices(keys);
+        int[] order = orderByBucket(buckets, this.hashTable.length);
+        for (int i : order) {
+            Pair<K, V> p = batch.get(i);
+            Map<K, V> bucket = this.hashTable[buckets[i]];
+            assert !bucket.hasKey(p.key()) : ""
+                    + "Violation of: key is not in DOMAIN(this)";
+            bucket.add(p.key(), p.value());
+            this.markOccupied(buckets[i]);
+        }
+        this.size += batch.size();
+
+        this.growIfNeeded();
+    }
+
+    /**
+     * Adds every pair of {@code source} to {@code this}, leaving
+     * {@code source} unchanged. The table is grown at most once, to fit the
+     * whole batch, and the pairs are then added bucket by bucket. Like
+     * {@code addAll(Iterator)}, it can take time proportional to
+     * {@code |this|} even for a single pair.
+     *
+     * @param source
+     *            the map whose pairs are added
+     * @updates this
+     * @requires <pre>
+     * source is not this  and
+     * DOMAIN(source) intersection DOMAIN(this) = {}
+     * </pre>
+     * @ensures this = #this union source
+     */
+    public final void addAll(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+
+        this.addAll(source.iterator());
+    }
+
+    /**
+     * Removes every key produced by {@code keys} from {@code this}, visiting
+     * the keys bucket by bucket. A running migration is finished first, so
+     * this can take time proportional to {@code |this|} even for a single key.
+     *
+     * @param keys
+     *            the keys to remove
+     * @updates this
+     * @requires <pre>
+     * [the keys produced by keys are distinct and are in DOMAIN(this)]  and
+     * [keys does not iterate over this]
+     * </pre>
+     * @ensures <pre>
+     * this = #this \ {(key, value): (key, value) is in #this  and
+     *                               [key is produced by keys]}
+     * </pre>
+     */
+    public final void removeAll(Iterable<K> keys) {
+        assert keys != null : "Violation of: keys is not null";
+
+        ArrayList<K> batch = new ArrayList<>();
+        for (K key : keys) {
+            batch.add(key);
+        }
+
+        this.bucketsTouched = 0;
+        this.finishMigration();
+
+        int[] buckets = this.bucketIndices(batch);
+        int[] order = orderByBucket(buckets, this.hashTable.length);
+        for (int i : order) {
+            Map<K, V> bucket = this.hashTable[buckets[i]];
+            assert bucket.hasKey(batch.get(i)) : ""
+                    + "Violation of: key is in DOMAIN(this)";
+            bucket.remove(batch.get(i));
+            if (bucket.size() == 0) {
+                setBit(this.occupied, buckets[i], false);
+            }
+        }
+        this.size -= batch.size();
+    }
+
+    /**
+     * Reports which of the keys produced by {@code keys} are in {@code this}:
+     * bit i of the result is set iff the i-th key produced is in
+     * DOMAIN(this). The keys are looked up bucket by bucket. A running
+     * migration is finished first, so this can take time proportional to
+     * {@code |this|} even for a single key.
+     *
+     * @param keys
+     *            the keys to look up
+     * @return the set of positions of the keys that are in {@code this}
+     * @requires [the keys produced by keys are not null]
+     * @ensures <pre>
+     * hasKeys = {i: integer where ([the i-th key produced by keys (counting
+     *                               from 0) is in DOMAIN(this)])}
+     * </pre>
+     */
+    public final BitSet hasKeys(Iterable<K> keys) {
+        assert keys != null : "Violation of: keys is not null";
+
+        ArrayList<K> batch = new ArrayList<>();
+        for (K key : keys) {
+            batch.add(key);
+        }
+
+        this.bucketsTouched = 0;
+        this.finishMigration();
+
+        BitSet found = new BitSet(batch.size());
+        int[] buckets = this.bucketIndices(batch);
+        int[] order = orderByBucket(buckets, this.hashTable.length);
+        for (int i : order) {
+            Map<K, V> bucket = this.hashTable[buckets[i]];
+            this.probes += bucket.size();
+            if (bucket.hasKey(batch.get(i))) {
+                found.set(i);
+            }
+        }
+        this.lookups += batch.size();
+
+        return found;
+    }
+
+    /**
+     * Reports whether a migration to a larger table is running.
+     *
+     * @return true iff a migration is running
+     */
+    final boolean isRehashing() {
+        return this.oldTable != null;
+    }
+
+    /**
+     * Reports how many buckets the most recent kernel operation visited, for
+     * checking that migrations are spread across operations. Buckets visited
+     * only to check preconditions are not counted.
+     *
+     * @return the number of buckets visited by the most recent operation
+     */
+    final int bucketsTouchedByLastOperation() {
+        return this.bucketsTouched;
+    }
+
+    /**
+     * Reports how many buckets of old tables have been migrated since
+     * {@code this} was created, for checking that each operation migrates at
+     * most {@code MIGRATION_STEP} of them.
+     *
+     * @return the number of old buckets migrated so far
+     */
+    final long bucketsMigrated() {
+        return this.bucketsMigrated;
+    }
+
+    /**
+     * Reports how the entries of {@code this} are spread over the buckets and
+     * how much work lookups have done since {@code this} was created or
+     * {@code resetProbeCounts} was last called. While an incremental migration
+     * is running, the buckets of both tables are counted. Lookups made only to
+     * check preconditions, when assertion checking is on, are not counted.
+     *
+     * @return a snapshot of the statistics
+     */
+    public final Statistics statistics() {
+        int buckets = this.hashTable.length;
+        if (this.oldTable != null) {
+            buckets += this.oldTable.length;
+        }
+        int[] counts = new int[buckets];
+        int maxBucketSize = 0;
+        for (int i = 0; i < buckets; i++) {
+            int bucketSize;
+            if (i < this.hashTable.length) {
+                bucketSize = this.hashTable[i].size();
+            } else {
+                bucketSize = this.oldTable[i - this.hashTable.length].size();
+            }
+            counts[i] = bucketSize;
+            maxBucketSize = Math.max(maxBucketSize, bucketSize);
+        }
+        //histogram[k] = number of buckets holding exactly k entries
+        int[] histogram = new int[maxBucketSize + 1];
+        for (int bucketSize : counts) {
+            histogram[bucketSize]++;
+        }
+        return new Statistics(buckets, this.size, histogram, this.lookups,
+                this.probes);
+    }
+
+    /**
+     * Resets the lookup and probe counts reported by {@code statistics} to 0.
+     */
+    public final void resetProbeCounts() {
+        this.lookups = 0;
+        this.probes = 0;
+    }
+
+    /**
+     * Snapshot of how evenly a {@code Map4} spreads its entries over its
+     * buckets, as reported by {@code statistics}.
+     */
+    public static final class Statistics {
+
+        /**
+         * Number of buckets.
+         */
+        private final int buckets;
+
+        /**
+         * Number of entries.
+         */
+        private final int entries;
+
+        /**
+         * Entry k is the number of buckets holding exactly k entries.
+         */
+        private final int[] histogram;
+
+        /**
+         * Number of lookups counted.
+         */
+        private final long lookups;
+
+        /**
+         * Total size of the buckets searched by those lookups.
+         */
+        private final long probes;
+
+        /**
+         * Constructor from the counted values.
+         *
+         * @param buckets
+         *            number of buckets
+         * @param entries
+         *            number of entries
+         * @param histogram
+         *            bucket-size histogram
+         * @param lookups
+         *            number of lookups
+         * @param probes
+         *            total size of the buckets searched
+         */
+        private Statistics(int buckets, int entries, int[] histogram,
+                long lookups, long probes) {
+            this.buckets = buckets;
+            this.entries = entries;
+            this.histogram = histogram;
+            this.lookups = lookups;
+            this.probes = probes;
+        }
+
+        /**
+         * Reports the number of buckets.
+         *
+         * @return the number of buckets
+         */
+        public int bucketCount() {
+            return this.buckets;
+        }
+
+        /**
+         * Reports the average number of entries per bucket.
+         *
+         * @return the load factor
+         */
+        public double loadFactor() {
+            return (double) this.entries / this.buckets;
+        }
+
+        /**
+         * Reports the number of entries in the fullest bucket.
+         *
+         * @return the longest chain length
+         */
+        public int maxBucketSize() {
+            return this.histogram.length - 1;
+        }
+
+        /**
+         * Reports the bucket-size histogram: entry k is the number of buckets
+         * holding exactly k entries.
+         *
+         * @return a copy of the histogram
+         */
+        public int[] bucketSizeHistogram() {
+            return this.histogram.clone();
+        }
+
+        /**
+         * Reports the number of lookups counted.
+         *
+         * @return the number of lookups
+         */
+        public long lookups() {
+            return this.lookups;
+        }
+
+        /**
+         * Reports the total number of entries in the buckets searched by the
+         * counted lookups.
+         *
+         * @return the number of probes
+         */
+        public long probes() {
+            return this.probes;
+        }
+
+        /**
+         * Reports the average number of entries in the bucket searched per
+         * lookup, or 0 if there were no lookups.
+         *
+         * @return the average number of probes per lookup
+         */
+        public double averageProbes() {
+            double average = 0;
+            if (this.lookups > 0) {
+                average = (double) this.probes / this.lookups;
+            }
+            return average;
+        }
+
+        @Override
+        public String toString() {
+            return "buckets=" + this.buckets + " entries=" + this.entries
+                    + " loadFactor=" + this.loadFactor() + " maxBucketSize="
+                    + this.maxBucketSize() + " lookups=" + this.lookups
+                    + " averageProbes=" + this.averageProbes();
+        }
+
+    }
+
     /**
-     * Implementation of {@code Iterator} interface for {@code Map4}.
+     * Implementation of {@code Iterator} interface for {@code Map4}. It is
+     * only created once any migration is finished, so it walks the buckets of
+     * {@code hashTable} alone, and lookups made while it is in use do not move
+     * entries between buckets.
      */
     private final class Map4Iterator implements Iterator<Pair<K, V>> {
 
@@ -297,6 +1383,8 @@ public class Map4<K, V> extends MapSecondary<K, V> {
          * No-argument constructor.
          */
         Map4Iterator() {
+            assert Map4.this.oldTable == null : ""
+                    + "Violation of: $this.oldTable = null";
             this.numberSeen = 0;
             this.currentBucket = 0;
             this.bucketIterator = Map4.this.hashTable[0].iterator();
@@ -320,7 +1408,9 @@ public class Map4<K, V> extends MapSecondary<K, V> {
             }
             this.numberSeen++;
             while (!this.bucketIterator.hasNext()) {
-                this.currentBucket++;
+                //skip straight to the next bucket that has anything in it
+                this.currentBucket = nextSetBit(Map4.this.occupied,
+                        this.currentBucket + 1);
                 this.bucketIterator = Map4.this.hashTable[this.currentBucket]
                         .iterator();
             }
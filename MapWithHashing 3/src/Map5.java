@@ -0,0 +1,492 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map} represented as an open-addressing hash table (with linear
+ * probing) using parallel arrays of keys and values, with implementations of
+ * primary methods.
+ *
+ * <p>
+ * The table doubles in size whenever adding an entry would push the load
+ * factor above {@code MAX_LOAD_FACTOR}, so {@code add}, {@code remove},
+ * {@code value}, and {@code hasKey} take expected O(1) time no matter how many
+ * entries are stored. Entries are removed with backward-shift deletion, so no
+ * "tombstones" are ever left in the table.
+ * </p>
+ *
+ * @param <K>
+ *            type of {@code Map} domain (key) entries
+ * @param <V>
+ *            type of {@code Map} range (associated value) entries
+ * @mathdefinitions <pre>
+ * HOME (
+ *   x: K,
+ *   n: integer
+ *  ) : integer is
+ *  [computed result of spread(x.hashCode())] mod n
+ *
+ * PROBE_DISTANCE (
+ *   i: integer,
+ *   x: K,
+ *   n: integer
+ *  ) : integer is
+ *  (i - HOME(x, n)) mod n
+ * </pre>
+ * @convention <pre>
+ * |$this.keys| = |$this.values|  and
+ * [|$this.keys| is a power of 2]  and
+ * |$this.keys| >= MINIMUM_CAPACITY  and
+ * $this.size <= MAX_LOAD_FACTOR * |$this.keys|  and
+ * for all i: integer
+ *     where (0 <= i  and  i < |$this.keys|)
+ *   (($this.keys[i] = null) = ($this.values[i] = null))  and
+ * for all i: integer
+ *     where (0 <= i  and  i < |$this.keys|  and  $this.keys[i] /= null)
+ *   (for all j: integer
+ *        where (0 <= j  and  j < PROBE_DISTANCE(i, $this.keys[i], |$this.keys|))
+ *      ($this.keys[(HOME($this.keys[i], |$this.keys|) + j) mod |$this.keys|]
+ *         /= null))  and
+ * [there are no two non-null equal entries in $this.keys]  and
+ * $this.size = |{i: integer where (0 <= i  and  i < |$this.keys|  and
+ *                                  $this.keys[i] /= null)}|  and
+ * 0 <= $this.firstOccupied <= |$this.keys|  and
+ * for all i: integer
+ *     where (0 <= i  and  i < $this.firstOccupied)
+ *   ($this.keys[i] = null)
+ * </pre>
+ * @correspondence <pre>
+ * this = {(x, y): (K, V)
+ *     where (there exists i: integer
+ *              (0 <= i  and  i < |$this.keys|  and
+ *               $this.keys[i] = x  and  $this.values[i] = y))}
+ * </pre>
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class Map5<K, V> extends MapSecondary<K, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default (and minimum) capacity of the table.
+     */
+    private static final int MINIMUM_CAPACITY = 16;
+
+    /**
+     * Largest capacity the table can grow to.
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * Largest fraction of the table allowed to be occupied before it grows.
+     */
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    /**
+     * Keys of the entries, or null for empty slots.
+     */
+    private K[] keys;
+
+    /**
+     * Values of the entries, parallel to {@code keys}.
+     */
+    private V[] values;
+
+    /**
+     * Total size of abstract {@code this}.
+     */
+    private int size;
+
+    /**
+     * Every slot before this index is empty; lets {@code removeAny} skip the
+     * slots it has already drained.
+     */
+    private int firstOccupied;
+
+    /**
+     * Mixes the high bits of {@code h} into the low bits, so that hash codes
+     * that differ only in their upper bits do not all land in the same slot of
+     * a power-of-2 sized table.
+     *
+     * @param h
+     *            the hash code to spread
+     * @return the spread hash code
+     */
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the smallest power of 2 that is at least {@code MINIMUM_CAPACITY}
+     * and large enough to hold {@code expectedSize} entries without growing.
+     *
+     * @param expectedSize
+     *            the number of entries the table should hold
+     * @return the capacity
+     * @requires expectedSize >= 0
+     * @ensures <pre>
+     * [tableSizeFor is a power of 2]  and
+     * tableSizeFor >= MINIMUM_CAPACITY  and
+     * expectedSize <= MAX_LOAD_FACTOR * tableSizeFor
+     * </pre>
+     */
+    private static int tableSizeFor(int expectedSize) {
+        assert expectedSize >= 0 : "Violation of: expectedSize >= 0";
+
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < MAXIMUM_CAPACITY
+                && expectedSize > MAX_LOAD_FACTOR * capacity) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns the index of the slot holding {@code key}, or of the empty slot
+     * that ends its probe sequence if {@code key} is not in the table.
+     *
+     * @param key
+     *            the key to look for
+     * @return the index of the slot
+     * @ensures <pre>
+     * 0 <= findSlot < |$this.keys|  and
+     * ($this.keys[findSlot] = null  or  $this.keys[findSlot] = key)  and
+     * (key is in DOMAIN(this)) = ($this.keys[findSlot] = key)
+     * </pre>
+     */
+    private int findSlot(K key) {
+        int mask = this.keys.length - 1;
+        int i = spread(key.hashCode()) & mask;
+
+        //walk the probe sequence until we hit the key or an empty slot
+        while (this.keys[i] != null && !this.keys[i].equals(key)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Removes the entry in slot {@code hole} and shifts later entries of the
+     * same probe run back, so that every remaining key can still be reached
+     * from its home slot.
+     *
+     * @param hole
+     *            the index of the slot to empty
+     * @updates $this.keys, $this.values
+     * @requires 0 <= hole < |$this.keys|  and  $this.keys[hole] /= null
+     * @ensures <pre>
+     * [the entry at slot hole is no longer in the table and the convention
+     *  holds except for $this.size]
+     * </pre>
+     */
+    private void deleteSlot(int hole) {
+        int mask = this.keys.length - 1;
+        int i = hole;
+        int j = (i + 1) & mask;
+
+        while (this.keys[j] != null) {
+            int home = spread(this.keys[j].hashCode()) & mask;
+            /*
+             * the entry at j may fill the hole at i only if its home is not
+             * (cyclically) in the range (i, j]
+             */
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                this.keys[i] = this.keys[j];
+                this.values[i] = this.values[j];
+                i = j;
+            }
+            j = (j + 1) & mask;
+        }
+        this.keys[i] = null;
+        this.values[i] = null;
+    }
+
+    /**
+     * Moves every entry into a new table of size {@code newCapacity}.
+     *
+     * @param newCapacity
+     *            the new size of the table
+     * @updates $this.keys, $this.values, $this.firstOccupied
+     * @requires <pre>
+     * [newCapacity is a power of 2]  and
+     * $this.size <= MAX_LOAD_FACTOR * newCapacity
+     * </pre>
+     * @ensures |$this.keys| = newCapacity  and  this = #this
+     */
+    private void resize(int newCapacity) {
+        K[] oldKeys = this.keys;
+        V[] oldValues = this.values;
+
+        this.allocate(newCapacity);
+        int mask = newCapacity - 1;
+        for (int k = 0; k < oldKeys.length; k++) {
+            if (oldKeys[k] != null) {
+                //no key is present twice, so just find the first free slot
+                int i = spread(oldKeys[k].hashCode()) & mask;
+                while (this.keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                this.keys[i] = oldKeys[k];
+                this.values[i] = oldValues[k];
+            }
+        }
+    }
+
+    /**
+     * Allocates empty key and value arrays of size {@code capacity}.
+     *
+     * @param capacity
+     *            the size of the table
+     * @updates $this.keys, $this.values, $this.firstOccupied
+     * @requires [capacity is a power of 2]
+     * @ensures <pre>
+     * |$this.keys| = capacity  and  |$this.values| = capacity  and
+     * [all entries of $this.keys and $this.values are null]  and
+     * $this.firstOccupied = 0
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        /*
+         * With "new K[...]" in place of "new Object[...]" it does not compile;
+         * as shown, it results in a warning about an unchecked cast, though it
+         * cannot fail.
+         */
+        this.keys = (K[]) new Object[capacity];
+        this.values = (V[]) new Object[capacity];
+        this.firstOccupied = 0;
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param capacity
+     *            the size of the table
+     * @requires [capacity is a power of 2]
+     * @ensures <pre>
+     * |$this.keys| = capacity  and
+     * [all entries of $this.keys and $this.values are null]  and
+     * $this.size = 0
+     * </pre>
+     */
+    private void createNewRep(int capacity) {
+        this.allocate(capacity);
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Map5() {
+        this.createNewRep(MINIMUM_CAPACITY);
+    }
+
+    /**
+     * Constructor resulting in a table large enough to hold
+     * {@code expectedSize} entries without growing.
+     *
+     * @param expectedSize
+     *            the number of entries expected to be added
+     * @requires expectedSize >= 0
+     * @ensures this = {}
+     */
+    public Map5(int expectedSize) {
+        assert expectedSize >= 0 : "Violation of: expectedSize >= 0";
+
+        this.createNewRep(tableSizeFor(expectedSize));
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<K, V> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(MINIMUM_CAPACITY);
+    }
+
+    @Override
+    public final void transferFrom(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Map5<?, ?> : ""
+                + "Violation of: source is of dynamic type Map5<?,?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Map5<?,?>, and
+         * the ?,? must be K,V or the call would not have compiled.
+         */
+        Map5<K, V> localSource = (Map5<K, V>) source;
+        this.keys = localSource.keys;
+        this.values = localSource.values;
+        this.size = localSource.size;
+        this.firstOccupied = localSource.firstOccupied;
+        localSource.createNewRep(MINIMUM_CAPACITY);
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+        //grow first so the new entry never pushes us past the load factor
+        if (this.size + 1 > MAX_LOAD_FACTOR * this.keys.length
+                && this.keys.length < MAXIMUM_CAPACITY) {
+            this.resize(this.keys.length * 2);
+        }
+
+        int i = this.findSlot(key);
+        this.keys[i] = key;
+        this.values[i] = value;
+        if (i < this.firstOccupied) {
+            this.firstOccupied = i;
+        }
+
+        this.size++;
+    }
+
+    @Override
+    public final Pair<K, V> remove(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        int i = this.findSlot(key);
+        Pair<K, V> removed = new SimplePair<>(this.keys[i], this.values[i]);
+
+        this.deleteSlot(i);
+        this.size--;
+
+        return removed;
+    }
+
+    @Override
+    public final Pair<K, V> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        /*
+         * everything before firstOccupied is known to be empty, and deleting
+         * only ever moves entries into slots that were already occupied, so
+         * draining the whole map this way is linear in the table size
+         */
+        while (this.keys[this.firstOccupied] == null) {
+            this.firstOccupied++;
+        }
+
+        int i = this.firstOccupied;
+        Pair<K, V> removed = new SimplePair<>(this.keys[i], this.values[i]);
+
+        this.deleteSlot(i);
+        this.size--;
+
+        return removed;
+    }
+
+    @Override
+    public final V value(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.values[this.findSlot(key)];
+    }
+
+    @Override
+    public final boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.keys[this.findSlot(key)] != null;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<Pair<K, V>> iterator() {
+        return new Map5Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map5}.
+     */
+    private final class Map5Iterator implements Iterator<Pair<K, V>> {
+
+        /**
+         * Number of elements seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Slot at which to start looking for the next element.
+         */
+        private int currentSlot;
+
+        /**
+         * No-argument constructor.
+         */
+        Map5Iterator() {
+            this.numberSeen = 0;
+            this.currentSlot = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < Map5.this.size;
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.numberSeen++;
+            while (Map5.this.keys[this.currentSlot] == null) {
+                this.currentSlot++;
+            }
+            Pair<K, V> next = new SimplePair<>(Map5.this.keys[this.currentSlot],
+                    Map5.this.values[this.currentSlot]);
+            this.currentSlot++;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
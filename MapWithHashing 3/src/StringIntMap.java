@@ -0,0 +1,467 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map<String, Integer>} represented as an open-addressing hash table
+ * (with linear probing) using a {@code String[]} of keys and a parallel
+ * {@code int[]} of values, with implementations of primary methods and of
+ * {@code int}-valued counting methods.
+ *
+ * <p>
+ * The kernel methods box and unbox values at the boundary, but
+ * {@code intValue}, {@code increment}, and {@code addTo} never allocate, so a
+ * word-counting loop that only uses them runs without creating an
+ * {@code Integer} per token. The table grows like the one in {@code Map5}.
+ * </p>
+ *
+ * @convention <pre>
+ * [$this.keys, $this.size, and $this.firstOccupied satisfy the convention of
+ *  Map5 with MINIMUM_CAPACITY and MAX_LOAD_FACTOR as defined here]  and
+ * |$this.values| = |$this.keys|
+ * </pre>
+ * @correspondence <pre>
+ * this = {(x, y): (string of character, integer)
+ *     where (there exists i: integer
+ *              (0 <= i  and  i < |$this.keys|  and
+ *               $this.keys[i] = x  and  $this.values[i] = y))}
+ * </pre>
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class StringIntMap extends MapSecondary<String, Integer> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default (and minimum) capacity of the table.
+     */
+    private static final int MINIMUM_CAPACITY = 16;
+
+    /**
+     * Largest capacity the table can grow to.
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * Largest fraction of the table allowed to be occupied before it grows.
+     */
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    /**
+     * Keys of the entries, or null for empty slots.
+     */
+    private String[] keys;
+
+    /**
+     * Values of the entries, parallel to {@code keys}.
+     */
+    private int[] values;
+
+    /**
+     * Total size of abstract {@code this}.
+     */
+    private int size;
+
+    /**
+     * Every slot before this index is empty.
+     */
+    private int firstOccupied;
+
+    /**
+     * Mixes the high bits of {@code h} into the low bits.
+     *
+     * @param h
+     *            the hash code to spread
+     * @return the spread hash code
+     */
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the index of the slot holding {@code key}, or of the empty slot
+     * that ends its probe sequence if {@code key} is not in the table.
+     *
+     * @param key
+     *            the key to look for
+     * @return the index of the slot
+     * @ensures <pre>
+     * 0 <= findSlot < |$this.keys|  and
+     * ($this.keys[findSlot] = null  or  $this.keys[findSlot] = key)  and
+     * (key is in DOMAIN(this)) = ($this.keys[findSlot] = key)
+     * </pre>
+     */
+    private int findSlot(String key) {
+        int mask = this.keys.length - 1;
+        int i = spread(key.hashCode()) & mask;
+
+        while (this.keys[i] != null && !this.keys[i].equals(key)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Removes the entry in slot {@code hole}, shifting later entries of the
+     * same probe run back.
+     *
+     * @param hole
+     *            the index of the slot to empty
+     * @updates $this.keys, $this.values
+     * @requires 0 <= hole < |$this.keys|  and  $this.keys[hole] /= null
+     * @ensures <pre>
+     * [the entry at slot hole is no longer in the table and the convention
+     *  holds except for $this.size]
+     * </pre>
+     */
+    private void deleteSlot(int hole) {
+        int mask = this.keys.length - 1;
+        int i = hole;
+        int j = (i + 1) & mask;
+
+        while (this.keys[j] != null) {
+            int home = spread(this.keys[j].hashCode()) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                this.keys[i] = this.keys[j];
+                this.values[i] = this.values[j];
+                i = j;
+            }
+            j = (j + 1) & mask;
+        }
+        this.keys[i] = null;
+        this.values[i] = 0;
+    }
+
+    /**
+     * Doubles the table if adding one more entry would push the load factor
+     * above {@code MAX_LOAD_FACTOR}.
+     *
+     * @updates $this.keys, $this.values, $this.firstOccupied
+     * @ensures this = #this
+     */
+    private void growIfNeeded() {
+        if (this.size + 1 > MAX_LOAD_FACTOR * this.keys.length
+                && this.keys.length < MAXIMUM_CAPACITY) {
+            String[] oldKeys = this.keys;
+            int[] oldValues = this.values;
+
+            this.allocate(oldKeys.length * 2);
+            int mask = this.keys.length - 1;
+            for (int k = 0; k < oldKeys.length; k++) {
+                if (oldKeys[k] != null) {
+                    int i = spread(oldKeys[k].hashCode()) & mask;
+                    while (this.keys[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    this.keys[i] = oldKeys[k];
+                    this.values[i] = oldValues[k];
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts {@code key} with {@code value} in empty slot {@code i}.
+     *
+     * @param i
+     *            the empty slot ending the probe sequence of {@code key}
+     * @param key
+     *            the key to add
+     * @param value
+     *            the value to add
+     * @updates this
+     * @requires $this.keys[i] = null  and  [i = findSlot(key)]
+     * @ensures this = #this union {(key, value)}
+     */
+    private void fillSlot(int i, String key, int value) {
+        this.keys[i] = key;
+        this.values[i] = value;
+        if (i < this.firstOccupied) {
+            this.firstOccupied = i;
+        }
+        this.size++;
+    }
+
+    /**
+     * Allocates empty key and value arrays of size {@code capacity}.
+     *
+     * @param capacity
+     *            the size of the table
+     * @updates $this.keys, $this.values, $this.firstOccupied
+     * @requires [capacity is a power of 2]
+     * @ensures <pre>
+     * |$this.keys| = capacity  and  |$this.values| = capacity  and
+     * [all entries of $this.keys are null]  and  $this.firstOccupied = 0
+     * </pre>
+     */
+    private void allocate(int capacity) {
+        this.keys = new String[capacity];
+        this.values = new int[capacity];
+        this.firstOccupied = 0;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.allocate(MINIMUM_CAPACITY);
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public StringIntMap() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Map<String, Integer> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Map<String, Integer> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof StringIntMap : ""
+                + "Violation of: source is of dynamic type StringIntMap";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        StringIntMap localSource = (StringIntMap) source;
+        this.keys = localSource.keys;
+        this.values = localSource.values;
+        this.size = localSource.size;
+        this.firstOccupied = localSource.firstOccupied;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(String key, Integer value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+        this.growIfNeeded();
+        this.fillSlot(this.findSlot(key), key, value);
+    }
+
+    @Override
+    public final Pair<String, Integer> remove(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        int i = this.findSlot(key);
+        Pair<String, Integer> removed = new SimplePair<>(this.keys[i],
+                this.values[i]);
+
+        this.deleteSlot(i);
+        this.size--;
+
+        return removed;
+    }
+
+    @Override
+    public final Pair<String, Integer> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        while (this.keys[this.firstOccupied] == null) {
+            this.firstOccupied++;
+        }
+
+        int i = this.firstOccupied;
+        Pair<String, Integer> removed = new SimplePair<>(this.keys[i],
+                this.values[i]);
+
+        this.deleteSlot(i);
+        this.size--;
+
+        return removed;
+    }
+
+    @Override
+    public final Integer value(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.values[this.findSlot(key)];
+    }
+
+    @Override
+    public final boolean hasKey(String key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.keys[this.findSlot(key)] != null;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<Pair<String, Integer>> iterator() {
+        return new StringIntMapIterator();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports the value associated with {@code key}, without boxing it.
+     *
+     * @param key
+     *            the key whose associated value is to be reported
+     * @return the value associated with key
+     * @requires key is in DOMAIN(this)
+     * @ensures (key, intValue) is in this
+     */
+    public final int intValue(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.values[this.findSlot(key)];
+    }
+
+    /**
+     * Adds 1 to the value associated with {@code key}, adding {@code key}
+     * with value 1 if it is not yet in {@code this}.
+     *
+     * @param key
+     *            the key whose count is to be incremented
+     * @aliases reference key
+     * @updates this
+     * @ensures <pre>
+     * if key is in DOMAIN(#this) then
+     *   this = (#this \ {(key, #this(key))}) union {(key, #this(key) + 1)}
+     * else
+     *   this = #this union {(key, 1)}
+     * </pre>
+     */
+    public final void increment(String key) {
+        assert key != null : "Violation of: key is not null";
+
+        this.addTo(key, 1);
+    }
+
+    /**
+     * Adds {@code delta} to the value associated with {@code key}, adding
+     * {@code key} with value {@code delta} if it is not yet in {@code this}.
+     *
+     * @param key
+     *            the key whose value is to be updated
+     * @param delta
+     *            the amount to add
+     * @aliases reference key
+     * @updates this
+     * @ensures <pre>
+     * if key is in DOMAIN(#this) then
+     *   this = (#this \ {(key, #this(key))}) union {(key, #this(key) + delta)}
+     * else
+     *   this = #this union {(key, delta)}
+     * </pre>
+     */
+    public final void addTo(String key, int delta) {
+        assert key != null : "Violation of: key is not null";
+
+        int i = this.findSlot(key);
+        if (this.keys[i] != null) {
+            this.values[i] += delta;
+        } else {
+            //the table may grow, so the slot has to be found again after
+            this.growIfNeeded();
+            this.fillSlot(this.findSlot(key), key, delta);
+        }
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code StringIntMap}.
+     */
+    private final class StringIntMapIterator
+            implements Iterator<Pair<String, Integer>> {
+
+        /**
+         * Number of elements seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Slot at which to start looking for the next element.
+         */
+        private int currentSlot;
+
+        /**
+         * No-argument constructor.
+         */
+        StringIntMapIterator() {
+            this.numberSeen = 0;
+            this.currentSlot = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < StringIntMap.this.size;
+        }
+
+        @Override
+        public Pair<String, Integer> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.numberSeen++;
+            while (StringIntMap.this.keys[this.currentSlot] == null) {
+                this.currentSlot++;
+            }
+            Pair<String, Integer> next = new SimplePair<>(
+                    StringIntMap.this.keys[this.currentSlot],
+                    StringIntMap.this.values[this.currentSlot]);
+            this.currentSlot++;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code ConcurrentMap4}, including a
+ * multi-threaded word-count stress test.
+ */
+public class ConcurrentMap4Test extends MapTest {
+
+    /**
+     * Number of threads in the stress test.
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * Number of words each thread counts in the stress test.
+     */
+    private static final int WORDS_PER_THREAD = 20000;
+
+    /**
+     * Number of distinct words in the stress test.
+     */
+    private static final int DISTINCT_WORDS = 997;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new ConcurrentMap4<String, String>();
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Returns the {@code i}-th word counted by thread {@code t} in the stress
+     * test.
+     *
+     * @param t
+     *            the thread number
+     * @param i
+     *            the word number
+     * @return the word
+     */
+    private static String word(int t, int i) {
+        return "w" + ((t * 31 + i * 7) % DISTINCT_WORDS);
+    }
+
+    /**
+     * Test that several threads counting words into one shared map with merge
+     * get the same counts as a sequential run.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting for the threads
+     */
+    @Test
+    public final void testConcurrentMergeMatchesSequential()
+            throws InterruptedException {
+        ConcurrentMap4<String, Integer> mAct = new ConcurrentMap4<>();
+        Map<String, Integer> mExp = new Map1L<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < WORDS_PER_THREAD; i++) {
+                    mAct.merge(word(thread, i), 1, Integer::sum);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        //count the same words sequentially while the threads run
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < WORDS_PER_THREAD; i++) {
+                String w = word(t, i);
+                if (mExp.hasKey(w)) {
+                    mExp.replaceValue(w, mExp.value(w) + 1);
+                } else {
+                    mExp.add(w, 1);
+                }
+            }
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(mExp.size(), mAct.size());
+        assertEquals(mExp, mAct);
+    }
+
+}
@@ -0,0 +1,65 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * JUnit test fixture for {@code IntIntMap}.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class IntIntMapTest {
+
+    /**
+     * Number of distinct keys to count so that the table grows.
+     */
+    private static final int MANY_KEYS = 1000;
+
+    /**
+     * Test of increment on new and existing keys, including zero and negative
+     * keys.
+     */
+    @Test
+    public final void testIncrement() {
+        IntIntMap mAct = new IntIntMap();
+        Map<Integer, Integer> mExp = new Map1L<>();
+        mExp.add(0, 2);
+        mExp.add(-7, 1);
+        mAct.increment(0);
+        mAct.increment(-7);
+        mAct.increment(0);
+        assertEquals(mExp, mAct);
+        assertEquals(2, mAct.intValue(0));
+        assertTrue(mAct.hasKey(-7));
+    }
+
+    /**
+     * Test of addTo and remove with many keys, across several resizes.
+     */
+    @Test
+    public final void testAddToAndRemoveManyKeys() {
+        IntIntMap mAct = new IntIntMap();
+        Map<Integer, Integer> mExp = new Map1L<>();
+        for (int i = 0; i < MANY_KEYS; i++) {
+            mAct.addTo(i * MANY_KEYS, i);
+            mAct.addTo(i * MANY_KEYS, 1);
+            mExp.add(i * MANY_KEYS, i + 1);
+        }
+        assertEquals(mExp, mAct);
+        for (int i = 0; i < MANY_KEYS; i += 2) {
+            assertEquals(mExp.remove(i * MANY_KEYS),
+                    mAct.remove(i * MANY_KEYS));
+        }
+        assertEquals(mExp, mAct);
+        while (mAct.size() > 0) {
+            Map.Pair<Integer, Integer> p = mAct.removeAny();
+            assertEquals(mExp.remove(p.key()), p);
+        }
+        assertEquals(0, mExp.size());
+    }
+
+}
@@ -1,3 +1,10 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.junit.Test;
+
 import components.map.Map;
 import components.map.Map1L;
 
@@ -12,6 +19,16 @@ public class Map4Test1009 extends MapTest {
      */
     private static final int TEST_HASH_TABLE_SIZE = 1009;
 
+    /**
+     * Size of hash table for the sparse-drain test.
+     */
+    private static final int LARGE_HASH_TABLE_SIZE = 1000003;
+
+    /**
+     * Number of entries in the sparse-drain test.
+     */
+    private static final int SPARSE_ENTRIES = 20000;
+
     @Override
     protected final Map<String, String> constructorTest() {
         return new Map4<String, String>(TEST_HASH_TABLE_SIZE);
@@ -22,4 +39,59 @@ public class Map4Test1009 extends MapTest {
         return new Map1L<String, String>();
     }
 
+    /**
+     * Test of draining a large, sparse table with removeAny and then clearing
+     * and reusing it; with a linear scan for the first non-empty bucket on
+     * each removeAny this would take over 10^10 steps.
+     */
+    @Test
+    public final void testDrainSparseLargeTable() {
+        Map<String, String> mAct = new Map4<String, String>(
+                LARGE_HASH_TABLE_SIZE);
+        Map<String, String> mExp = this.constructorRef();
+        for (int i = 0; i < SPARSE_ENTRIES; i++) {
+            mAct.add("key" + i, "value" + i);
+            mExp.add("key" + i, "value" + i);
+        }
+        assertEquals(mExp, mAct);
+        while (mAct.size() > 0) {
+            Map.Pair<String, String> p = mAct.removeAny();
+            assertEquals(mExp.remove(p.key()), p);
+        }
+        assertEquals(0, mExp.size());
+
+        mAct.add("a", "1");
+        mAct.add("b", "2");
+        mAct.clear();
+        mAct.add("c", "3");
+        mExp.add("c", "3");
+        assertEquals(mExp, mAct);
+    }
+
+    /**
+     * Test of the bulk methods with a small batch in a large table, which
+     * keeps its size.
+     */
+    @Test
+    public final void testBulkOperationsSmallBatch() {
+        Map4<String, String> mAct = new Map4<String, String>(
+                LARGE_HASH_TABLE_SIZE);
+        Map<String, String> source = this.constructorRef();
+        source.add("1", "a");
+        source.add("2", "b");
+        source.add("3", "c");
+        mAct.addAll(source.iterator());
+        assertEquals(source, mAct);
+        assertEquals(LARGE_HASH_TABLE_SIZE, mAct.statistics().bucketCount());
+
+        BitSet found = mAct.hasKeys(Arrays.asList("3", "4", "1"));
+        assertEquals(2, found.cardinality());
+        assertEquals(true, found.get(0) && found.get(2));
+
+        mAct.removeAll(Arrays.asList("1", "3"));
+        source.remove("1");
+        source.remove("3");
+        assertEquals(source, mAct);
+    }
+
 }
@@ -0,0 +1,174 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4} with incremental growth
+ * enabled, starting from a single bucket so that even small maps grow.
+ */
+public class Map4TestIncremental extends MapTest {
+
+    /**
+     * Initial size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 1;
+
+    /**
+     * Number of entries to add so that the table grows several times.
+     */
+    private static final int MANY_ENTRIES = 5000;
+
+    /**
+     * Number of entries after which the next migration moves many buckets.
+     */
+    private static final int SOME_ENTRIES = 50;
+
+    /**
+     * Most buckets a single operation may visit: the migrated buckets plus
+     * one bucket in each of the old and new tables.
+     */
+    private static final int MAX_BUCKETS_TOUCHED = Map4.MIGRATION_STEP + 2;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4<String, String>(TEST_HASH_TABLE_SIZE, true);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Test that no operation migrates more than {@code MIGRATION_STEP} old
+     * buckets, or visits more than a constant number of buckets, while the
+     * table is growing, and that the contents stay correct.
+     */
+    @Test
+    public final void testMigrationIsIncremental() {
+        Map4<String, String> mAct = new Map4<String, String>(
+                TEST_HASH_TABLE_SIZE, true);
+        Map<String, String> mExp = this.constructorRef();
+        boolean sawMigration = false;
+        for (int i = 0; i < MANY_ENTRIES; i++) {
+            long migrated = mAct.bucketsMigrated();
+            mAct.add("key" + i, "value" + i);
+            mExp.add("key" + i, "value" + i);
+            assertTrue(mAct.bucketsMigrated()
+                    - migrated <= Map4.MIGRATION_STEP);
+            assertTrue(mAct
+                    .bucketsTouchedByLastOperation() <= MAX_BUCKETS_TOUCHED);
+            sawMigration = sawMigration || mAct.isRehashing();
+
+            migrated = mAct.bucketsMigrated();
+            mAct.hasKey("key" + (i / 2));
+            assertTrue(mAct.bucketsMigrated()
+                    - migrated <= Map4.MIGRATION_STEP);
+            assertTrue(mAct
+                    .bucketsTouchedByLastOperation() <= MAX_BUCKETS_TOUCHED);
+        }
+        assertTrue(sawMigration);
+        assertTrue(mAct.bucketsMigrated() > 0);
+        assertEquals(mExp, mAct);
+        for (int i = 0; i < MANY_ENTRIES; i += 2) {
+            long migrated = mAct.bucketsMigrated();
+            assertEquals(mExp.value("key" + i), mAct.value("key" + i));
+            assertTrue(mAct.bucketsMigrated()
+                    - migrated <= Map4.MIGRATION_STEP);
+            assertTrue(mAct
+                    .bucketsTouchedByLastOperation() <= MAX_BUCKETS_TOUCHED);
+            migrated = mAct.bucketsMigrated();
+            mAct.remove("key" + i);
+            mExp.remove("key" + i);
+            assertTrue(mAct.bucketsMigrated()
+                    - migrated <= Map4.MIGRATION_STEP);
+            assertTrue(mAct
+                    .bucketsTouchedByLastOperation() <= MAX_BUCKETS_TOUCHED);
+        }
+        assertEquals(mExp, mAct);
+    }
+
+    /**
+     * Test that iterating over a table that is growing returns every pair
+     * exactly once, even when value and hasKey are called on each pair during
+     * the iteration.
+     */
+    @Test
+    public final void testIterateDuringMigration() {
+        Map4<String, String> mAct = new Map4<String, String>(
+                TEST_HASH_TABLE_SIZE, true);
+        Map<String, String> mExp = this.constructorRef();
+        int i = 0;
+        //grow past the first few tables, whose migrations take one step
+        while (i < SOME_ENTRIES || !mAct.isRehashing()) {
+            mAct.add("key" + i, "value" + i);
+            mExp.add("key" + i, "value" + i);
+            i++;
+        }
+        assertTrue(mAct.isRehashing());
+
+        Map<String, String> seen = this.constructorRef();
+        for (Map.Pair<String, String> p : mAct) {
+            assertTrue(!seen.hasKey(p.key()));
+            assertTrue(mAct.hasKey(p.key()));
+            assertEquals(p.value(), mAct.value(p.key()));
+            seen.add(p.key(), p.value());
+        }
+        assertEquals(mExp, seen);
+        assertEquals(mExp, mAct);
+    }
+
+    /**
+     * Test that addAll grows the table once for the whole batch, and that
+     * removeAll and hasKeys agree with the single-key methods afterwards.
+     */
+    @Test
+    public final void testBulkOperations() {
+        Map4<String, String> mAct = new Map4<String, String>(
+                TEST_HASH_TABLE_SIZE, true);
+        Map<String, String> mExp = this.constructorRef();
+        Map<String, String> source = this.constructorRef();
+        mAct.add("first", "0");
+        mExp.add("first", "0");
+        for (int i = 0; i < MANY_ENTRIES; i++) {
+            source.add("key" + i, "value" + i);
+        }
+
+        mAct.addAll(source);
+        assertEquals(MANY_ENTRIES, source.size());
+        assertTrue(!mAct.isRehashing());
+        assertTrue(mAct.statistics().loadFactor() <= 2);
+        for (Map.Pair<String, String> p : source) {
+            mExp.add(p.key(), p.value());
+        }
+        assertEquals(mExp, mAct);
+
+        ArrayList<String> queries = new ArrayList<>();
+        ArrayList<String> evens = new ArrayList<>();
+        for (int i = 0; i < MANY_ENTRIES; i++) {
+            queries.add("key" + i);
+            queries.add("missing" + i);
+            if (i % 2 == 0) {
+                evens.add("key" + i);
+            }
+        }
+        mAct.removeAll(evens);
+        for (String key : evens) {
+            mExp.remove(key);
+        }
+        assertEquals(mExp, mAct);
+
+        BitSet found = mAct.hasKeys(queries);
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(mExp.hasKey(queries.get(i)), found.get(i));
+        }
+    }
+
+}
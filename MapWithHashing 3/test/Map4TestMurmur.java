@@ -0,0 +1,154 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4} using the Murmur3 hash
+ * spreading function.
+ */
+public class Map4TestMurmur extends MapTest {
+
+    /**
+     * Size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 128;
+
+    /**
+     * Size of hash table to be used in the distribution tests.
+     */
+    private static final int LARGE_HASH_TABLE_SIZE = 1024;
+
+    /**
+     * Number of keys to add in the distribution tests.
+     */
+    private static final int KEYS = 512;
+
+    /**
+     * Longest chain allowed when {@code KEYS} keys are well spread over
+     * {@code LARGE_HASH_TABLE_SIZE} buckets.
+     */
+    private static final int MAX_SPREAD_CHAIN = 8;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4<String, String>(TEST_HASH_TABLE_SIZE, false,
+                Map4.MURMUR_SPREAD);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Fills {@code map} with keys that are all multiples of the table size.
+     *
+     * @param map
+     *            the map to fill
+     */
+    private static void addStridedKeys(Map<Integer, Integer> map) {
+        for (int i = 0; i < KEYS; i++) {
+            map.add(i * LARGE_HASH_TABLE_SIZE, i);
+        }
+    }
+
+    /**
+     * Test that keys sharing their low bits all collide without spreading
+     * and are spread out with the Murmur3 and seeded spreading functions.
+     */
+    @Test
+    public final void testSpreadingBreaksUpCollisions() {
+        Map4<Integer, Integer> identity = new Map4<Integer, Integer>(
+                LARGE_HASH_TABLE_SIZE, false, Map4.IDENTITY_SPREAD);
+        Map4<Integer, Integer> murmur = new Map4<Integer, Integer>(
+                LARGE_HASH_TABLE_SIZE, false, Map4.MURMUR_SPREAD);
+        Map4<Integer, Integer> seeded = new Map4<Integer, Integer>(
+                LARGE_HASH_TABLE_SIZE, false, Map4.seededSpread(2231));
+        addStridedKeys(identity);
+        addStridedKeys(murmur);
+        addStridedKeys(seeded);
+        assertEquals(KEYS, identity.statistics().maxBucketSize());
+        assertTrue(murmur.statistics().maxBucketSize() <= MAX_SPREAD_CHAIN);
+        assertTrue(seeded.statistics().maxBucketSize() <= MAX_SPREAD_CHAIN);
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(Integer.valueOf(i),
+                    seeded.value(i * LARGE_HASH_TABLE_SIZE));
+        }
+    }
+
+    /**
+     * Test that the histogram accounts for every bucket and every entry, and
+     * that probes are counted per lookup until reset.
+     */
+    @Test
+    public final void testStatistics() {
+        Map4<Integer, Integer> m = new Map4<Integer, Integer>(
+                LARGE_HASH_TABLE_SIZE, false, Map4.MURMUR_SPREAD);
+        addStridedKeys(m);
+        Map4.Statistics stats = m.statistics();
+        int[] histogram = stats.bucketSizeHistogram();
+        int buckets = 0;
+        int entries = 0;
+        for (int k = 0; k < histogram.length; k++) {
+            buckets += histogram[k];
+            entries += k * histogram[k];
+        }
+        assertEquals(LARGE_HASH_TABLE_SIZE, stats.bucketCount());
+        assertEquals(LARGE_HASH_TABLE_SIZE, buckets);
+        assertEquals(KEYS, entries);
+        assertEquals(0.5, stats.loadFactor(), 0.0);
+
+        m.resetProbeCounts();
+        assertEquals(0, m.statistics().lookups());
+        for (int i = 0; i < KEYS; i++) {
+            m.hasKey(i * LARGE_HASH_TABLE_SIZE);
+        }
+        stats = m.statistics();
+        assertEquals(KEYS, stats.lookups());
+        assertTrue(stats.averageProbes() >= 1.0);
+        assertTrue(stats.averageProbes() <= MAX_SPREAD_CHAIN);
+    }
+
+    /**
+     * Test that value and remove count one lookup each, with the same probes
+     * as hasKey, and that add counts none, whether or not assertion checking
+     * is on.
+     */
+    @Test
+    public final void testStatisticsThroughValueAndRemove() {
+        Map4<Integer, Integer> m = new Map4<Integer, Integer>(
+                LARGE_HASH_TABLE_SIZE, false, Map4.MURMUR_SPREAD);
+        addStridedKeys(m);
+        m.resetProbeCounts();
+        for (int i = 0; i < KEYS; i++) {
+            m.hasKey(i * LARGE_HASH_TABLE_SIZE);
+        }
+        long probes = m.statistics().probes();
+
+        m.resetProbeCounts();
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(Integer.valueOf(i),
+                    m.value(i * LARGE_HASH_TABLE_SIZE));
+        }
+        Map4.Statistics stats = m.statistics();
+        assertEquals(KEYS, stats.lookups());
+        assertEquals(probes, stats.probes());
+
+        m.resetProbeCounts();
+        for (int i = 0; i < KEYS; i++) {
+            m.remove(i * LARGE_HASH_TABLE_SIZE);
+        }
+        stats = m.statistics();
+        assertEquals(KEYS, stats.lookups());
+        assertTrue(stats.probes() <= probes);
+
+        m.resetProbeCounts();
+        addStridedKeys(m);
+        assertEquals(0, m.statistics().lookups());
+    }
+
+}
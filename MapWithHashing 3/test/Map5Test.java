@@ -0,0 +1,52 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map5}.
+ */
+public class Map5Test extends MapTest {
+
+    /**
+     * Number of entries to add so that the table has to grow several times.
+     */
+    private static final int MANY_ENTRIES = 1000;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map5<String, String>();
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Test of add and remove across several resizes of the table.
+     */
+    @Test
+    public final void testAddRemoveManyEntries() {
+        Map<String, String> mAct = this.constructorTest();
+        Map<String, String> mExp = this.constructorRef();
+        for (int i = 0; i < MANY_ENTRIES; i++) {
+            mAct.add("key" + i, "value" + i);
+            mExp.add("key" + i, "value" + i);
+        }
+        assertEquals(mExp, mAct);
+        for (int i = 0; i < MANY_ENTRIES; i += 2) {
+            mAct.remove("key" + i);
+            mExp.remove("key" + i);
+        }
+        assertEquals(mExp, mAct);
+        while (mAct.size() > 0) {
+            Map.Pair<String, String> p = mAct.removeAny();
+            assertEquals(mExp.remove(p.key()), p);
+        }
+        assertEquals(0, mExp.size());
+    }
+
+}
@@ -0,0 +1,84 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * JUnit test fixture for {@code StringIntMap}.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class StringIntMapTest {
+
+    /**
+     * Number of distinct words to count so that the table grows.
+     */
+    private static final int MANY_WORDS = 1000;
+
+    /**
+     * Test of increment on a new key.
+     */
+    @Test
+    public final void testIncrementNewKey() {
+        StringIntMap mAct = new StringIntMap();
+        Map<String, Integer> mExp = new Map1L<>();
+        mExp.add("word", 1);
+        mAct.increment("word");
+        assertEquals(mExp, mAct);
+    }
+
+    /**
+     * Test of increment on an existing key.
+     */
+    @Test
+    public final void testIncrementExistingKey() {
+        StringIntMap mAct = new StringIntMap();
+        Map<String, Integer> mExp = new Map1L<>();
+        mAct.add("word", 2);
+        mExp.add("word", 3);
+        mAct.increment("word");
+        assertEquals(mExp, mAct);
+        assertEquals(3, mAct.intValue("word"));
+    }
+
+    /**
+     * Test of addTo on new and existing keys.
+     */
+    @Test
+    public final void testAddTo() {
+        StringIntMap mAct = new StringIntMap();
+        Map<String, Integer> mExp = new Map1L<>();
+        mExp.add("a", 5);
+        mExp.add("b", -2);
+        mAct.addTo("a", 2);
+        mAct.addTo("b", -2);
+        mAct.addTo("a", 3);
+        assertEquals(mExp, mAct);
+    }
+
+    /**
+     * Test of counting many words with repeats, across several resizes, and
+     * then removing them all.
+     */
+    @Test
+    public final void testCountManyWords() {
+        StringIntMap mAct = new StringIntMap();
+        Map<String, Integer> mExp = new Map1L<>();
+        for (int i = 0; i < MANY_WORDS; i++) {
+            mExp.add("word" + i, i % 3 + 1);
+            for (int j = 0; j <= i % 3; j++) {
+                mAct.increment("word" + i);
+            }
+        }
+        assertEquals(mExp, mAct);
+        while (mAct.size() > 0) {
+            Map.Pair<String, Integer> p = mAct.removeAny();
+            assertEquals(mExp.remove(p.key()), p);
+        }
+        assertEquals(0, mExp.size());
+    }
+
+}
@@ -0,0 +1,419 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented, like {@code Set3a}, as a binary search tree of
+ * nodes, but with nodes that never change once built: {@code add},
+ * {@code remove}, and {@code removeAny} copy the nodes on the path from the
+ * root to the change, share every other subtree with the old tree, and then
+ * install the new root.
+ *
+ * <p>
+ * Because no node is ever changed, {@code snapshot} is O(1): it returns a new
+ * set that shares the current root, and whose value stays what {@code this}
+ * was when it was taken, whatever is done to {@code this} afterwards (and
+ * vice versa). A writer thread can keep changing {@code this} while any
+ * number of reader threads iterate over snapshots, with no locking and no
+ * copying: the root is {@code volatile} and the fields of a node are
+ * {@code final}, so a snapshot taken in one thread sees fully built nodes.
+ * {@code this} itself must still be changed by one thread at a time.
+ * </p>
+ *
+ * <p>
+ * As in {@code Set3a}, the tree is not rebalanced, so each change copies as
+ * many nodes as the depth of the element it changes.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @mathdefinitions <pre>
+ * IS_BST(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [tree satisfies the binary search tree properties as described in the
+ *   slides with the ordering reported by compareTo for T, including that
+ *   it has no duplicate labels]
+ * </pre>
+ * @convention <pre>
+ * [$this.root is null or points to the root of a binary tree of nodes]  and
+ * IS_BST([that tree])  and
+ * [for every node n of that tree, n.count is the number of nodes of the
+ *  subtree rooted at n]  and
+ * [no node of that tree is ever changed]
+ * </pre>
+ * @correspondence this = [labels of the nodes of the tree at $this.root]
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class PersistentSet3a<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Node class for immutable binary search tree nodes. It is static, unlike
+     * the nodes of {@code Set3a}, because its nodes are shared by every
+     * snapshot and must not keep the set that built them alive.
+     *
+     * @param <T>
+     *            type of node labels
+     */
+    private static final class Node<T> {
+
+        /**
+         * Label of node.
+         */
+        private final T label;
+
+        /**
+         * Root of left subtree, or null if it is empty.
+         */
+        private final Node<T> left;
+
+        /**
+         * Root of right subtree, or null if it is empty.
+         */
+        private final Node<T> right;
+
+        /**
+         * Number of nodes in the subtree rooted at this node.
+         */
+        private final int count;
+
+        /**
+         * Constructor from label, subtrees, and count.
+         *
+         * @param label
+         *            the label
+         * @param left
+         *            the root of the left subtree, or null
+         * @param right
+         *            the root of the right subtree, or null
+         * @param count
+         *            the number of nodes in the subtree rooted at this node
+         */
+        private Node(T label, Node<T> left, Node<T> right, int count) {
+            this.label = label;
+            this.left = left;
+            this.right = right;
+            this.count = count;
+        }
+
+    }
+
+    /**
+     * Root of the tree, or null if {@code this} is empty.
+     */
+    private volatile Node<T> root;
+
+    /**
+     * Rebuilds, bottom up, the nodes on {@code path} (whose top node is the
+     * deepest), each with its child towards {@code x} replaced by the node
+     * rebuilt below it, starting from {@code child}, and with its count
+     * changed by {@code delta}; returns the new root.
+     *
+     * @param <T>
+     *            type of node labels
+     * @param path
+     *            the nodes from the root down to the parent of the change
+     * @param x
+     *            the label the path leads towards
+     * @param child
+     *            the new subtree below the deepest node of path
+     * @param delta
+     *            the change in the number of nodes below each node of path
+     * @return the new root
+     * @updates path
+     * @requires <pre>
+     * [each node of path is the child, towards x, of the one below it]
+     * </pre>
+     * @ensures <pre>
+     * path = <>  and
+     * [copyPath is the root of a copy of the old tree with the subtree below
+     *  the deepest node of #path, towards x, replaced by child]
+     * </pre>
+     */
+    private static <T extends Comparable<T>> Node<T> copyPath(
+            Deque<Node<T>> path, T x, Node<T> child, int delta) {
+        Node<T> n = child;
+        while (!path.isEmpty()) {
+            Node<T> p = path.pop();
+            if (x.compareTo(p.label) < 0) {
+                n = new Node<>(p.label, n, p.right, p.count + delta);
+            } else {
+                n = new Node<>(p.label, p.left, n, p.count + delta);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of nodes in the subtree rooted at {@code n}.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @return the number of nodes in the subtree, 0 if it is empty
+     */
+    private static int count(Node<?> n) {
+        int count = 0;
+        if (n != null) {
+            count = n.count;
+        }
+        return count;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+
+        this.root = null;
+
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public PersistentSet3a() {
+
+        this.createNewRep();
+
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof PersistentSet3a<?> : ""
+                + "Violation of: source is of dynamic type PersistentSet3a<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * PersistentSet3a<?>, and the ? must be T or the call would not have
+         * compiled.
+         */
+        PersistentSet3a<T> localSource = (PersistentSet3a<T>) source;
+        this.root = localSource.root;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        //remember the path down to the empty subtree where x belongs
+        Deque<Node<T>> path = new ArrayDeque<>();
+        Node<T> n = this.root;
+        while (n != null) {
+            path.push(n);
+            if (x.compareTo(n.label) < 0) {
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        this.root = copyPath(path, x, new Node<>(x, null, null, 1), 1);
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        //remember the path down to the parent of the node labeled x
+        Deque<Node<T>> path = new ArrayDeque<>();
+        Node<T> n = this.root;
+        int cmp = x.compareTo(n.label);
+        while (cmp != 0) {
+            path.push(n);
+            if (cmp < 0) {
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+            cmp = x.compareTo(n.label);
+        }
+
+        Node<T> replacement;
+        if (n.left == null) {
+            replacement = n.right;
+        } else if (n.right == null) {
+            replacement = n.left;
+        } else {
+            //replace n with a copy of the node of smallest label on its right
+            Deque<Node<T>> successorPath = new ArrayDeque<>();
+            Node<T> successor = n.right;
+            while (successor.left != null) {
+                successorPath.push(successor);
+                successor = successor.left;
+            }
+            Node<T> right = copyPath(successorPath, successor.label,
+                    successor.right, -1);
+            replacement = new Node<>(successor.label, n.left, right,
+                    n.count - 1);
+        }
+        this.root = copyPath(path, x, replacement, -1);
+
+        return n.label;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        //the root needs no search, so only the path to its successor is copied
+        return this.remove(this.root.label);
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        Node<T> n = this.root;
+        int cmp = 1;
+        while (n != null && cmp != 0) {
+            cmp = x.compareTo(n.label);
+            if (cmp < 0) {
+                n = n.left;
+            } else if (cmp > 0) {
+                n = n.right;
+            }
+        }
+        return n != null;
+    }
+
+    @Override
+    public final int size() {
+        return count(this.root);
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new PersistentSet3aIterator(this.root);
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Returns a new set with the current value of {@code this}, in constant
+     * time, by sharing the current tree. Later changes to either set do not
+     * affect the other, and the snapshot may be read by any thread while
+     * {@code this} is being changed.
+     *
+     * @return a set equal to this
+     * @ensures snapshot = this
+     */
+    public final PersistentSet3a<T> snapshot() {
+        PersistentSet3a<T> snapshot = new PersistentSet3a<>();
+        snapshot.root = this.root;
+        return snapshot;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for
+     * {@code PersistentSet3a}, which returns the elements in increasing order.
+     * It walks the tree that was current when it was created, which never
+     * changes, so {@code this} may be changed while it is in use without
+     * affecting what it returns.
+     */
+    private final class PersistentSet3aIterator implements Iterator<T> {
+
+        /**
+         * Nodes whose labels and right subtrees are still to be visited, each
+         * below the one before it; the node on top is the next one to visit.
+         */
+        private final Deque<Node<T>> path;
+
+        /**
+         * Constructor from root.
+         *
+         * @param root
+         *            the root of the tree to iterate over, or null
+         */
+        private PersistentSet3aIterator(Node<T> root) {
+            this.path = new ArrayDeque<>();
+            this.pushLeftPath(root);
+        }
+
+        /**
+         * Pushes {@code n} and its chain of left descendants on the stack.
+         *
+         * @param n
+         *            the top of the chain, or null
+         */
+        private void pushLeftPath(Node<T> n) {
+            Node<T> p = n;
+            while (p != null) {
+                this.path.push(p);
+                p = p.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.path.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node<T> n = this.path.pop();
+            this.pushLeftPath(n.right);
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
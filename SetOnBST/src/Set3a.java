@@ -1,13 +1,49 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-import components.binarytree.BinaryTree;
-import components.binarytree.BinaryTree1;
 import components.set.Set;
 import components.set.SetSecondary;
 
 /**
- * {@code Set} represented as a {@code BinaryTree} (maintained as a binary
- * search tree) of elements with implementations of primary methods.
+ * {@code Set} represented as a binary search tree of nodes, done
+ * "bare-handed", with implementations of primary methods.
+ *
+ * <p>
+ * Each node holds a label, references to the roots of its two subtrees, and
+ * the number of nodes in the subtree it roots. {@code contains}, {@code add},
+ * {@code remove}, and {@code removeAny} walk down the tree in a loop,
+ * following those references, so searching allocates nothing and {@code add}
+ * allocates only the new node.
+ * </p>
+ *
+ * <p>
+ * Because the elements are kept in order, {@code Set3a} also answers ordered
+ * queries: {@code first}, {@code last}, {@code floor}, {@code ceiling},
+ * {@code rangeIterator}, {@code rank}, and {@code select}. Thanks to the
+ * subtree counts, each of them takes time proportional to the height of the
+ * tree, and {@code rangeIterator} only visits the elements it returns and
+ * their ancestors.
+ * </p>
+ *
+ * <p>
+ * {@code iterator} returns the elements in increasing order. Like
+ * {@code rangeIterator} it walks the tree as it goes, with a stack holding at
+ * most one node per level, rather than copying the elements up front, so
+ * {@code this} must not be changed while an iterator is in use.
+ * </p>
+ *
+ * <p>
+ * When both sets are {@code Set3a}s, {@code add(Set)} (union),
+ * {@code remove(Set)} (difference), {@code intersect}, and {@code isSubset}
+ * merge the sorted elements of the two trees in one linear pass instead of
+ * searching one tree for each element of the other, and the sets they change
+ * are rebuilt as perfectly balanced trees from the sorted result.
+ * {@code fromSorted} builds a new set the same way from elements that are
+ * already sorted, in linear time.
+ * </p>
  *
  * @param <T>
  *            type of {@code Set} elements
@@ -19,8 +55,13 @@ import components.set.SetSecondary;
  *   slides with the ordering reported by compareTo for T, including that
  *   it has no duplicate labels]
  * </pre>
- * @convention IS_BST($this.tree)
- * @correspondence this = labels($this.tree)
+ * @convention <pre>
+ * [$this.root is null or points to the root of a binary tree of nodes]  and
+ * IS_BST([that tree])  and
+ * [for every node n of that tree, n.count is the number of nodes of the
+ *  subtree rooted at n]
+ * </pre>
+ * @correspondence this = [labels of the nodes of the tree at $this.root]
  *
  * @author Jared Malto and Kelvin Nguyen
  *
@@ -32,196 +73,233 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
      */
 
     /**
-     * Elements included in {@code this}.
+     * Node class for binary search tree nodes.
      */
-    private BinaryTree<T> tree;
+    private final class Node {
 
-    /**
-     * Returns whether {@code x} is in {@code t}.
-     *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} to be searched
-     * @param x
-     *            the label to be searched for
-     * @return true if t contains x, false otherwise
-     * @requires IS_BST(t)
-     * @ensures isInTree = (x is in labels(t))
-     */
-    private static <T extends Comparable<T>> boolean isInTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
-        assert x != null : "Violation of: x is not null";
+        /**
+         * Label of node.
+         */
+        private T label;
 
-        boolean xIsInTree = false;
+        /**
+         * Root of left subtree, or null if it is empty.
+         */
+        private Node left;
 
-        /*
-         * we only want to keep searching if there is still more to disassemble
-         * and if we haven't found the element yet
-         *
+        /**
+         * Root of right subtree, or null if it is empty.
          */
-        if (t.size() > 0) {
-            BinaryTree<T> left = t.newInstance();
-            BinaryTree<T> right = t.newInstance();
-
-            T elem = t.disassemble(left, right);
-
-            if (elem.equals(x)) {
-                //if the current root is what we want
-                xIsInTree = true;
-            } else if (elem.compareTo(x) < 0) {
-                //if the current root is less than what we want, look at the right side
-                xIsInTree = isInTree(right, x);
-            } else {
-                //else, look left
-                xIsInTree = isInTree(left, x);
-            }
-            //reassemble the tree
-            t.assemble(elem, left, right);
+        private Node right;
 
-        }
+        /**
+         * Number of nodes in the subtree rooted at this node.
+         */
+        private int count;
 
-        return xIsInTree;
     }
 
     /**
-     * Inserts {@code x} in {@code t}.
+     * Initial size of the array collecting the elements in
+     * {@code fromSorted}.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Root of the tree, or null if {@code this} is empty.
+     */
+    private Node root;
+
+    /**
+     * Returns the number of nodes in the subtree rooted at {@code n}.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @return the number of nodes in the subtree, 0 if it is empty
+     */
+    private int count(Node n) {
+        int count = 0;
+        if (n != null) {
+            count = n.count;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the node of the tree whose label is {@code x}, or null if there
+     * is none.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} to be searched
      * @param x
-     *            the label to be inserted
-     * @aliases reference {@code x}
-     * @updates t
-     * @requires IS_BST(t) and x is not in labels(t)
-     * @ensures IS_BST(t) and labels(t) = labels(#t) union {x}
+     *            the label to be searched for
+     * @return the node labeled x, or null
+     * @ensures <pre>
+     * if x is in labels($this.root) then find.label = x  else  find = null
+     * </pre>
      */
-    private static <T extends Comparable<T>> void insertInTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
+    private Node find(T x) {
         assert x != null : "Violation of: x is not null";
 
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
+        Node n = this.root;
+        int cmp = 1;
+        //walk down until x is found or there is nowhere left to look
+        while (n != null && cmp != 0) {
+            cmp = x.compareTo(n.label);
+            if (cmp < 0) {
+                n = n.left;
+            } else if (cmp > 0) {
+                n = n.right;
+            }
+        }
+        return n;
+    }
 
-        //base case is t is empty and we simply assemble the tree
-        if (t.size() == 0) {
-            t.assemble(x, left, right);
+    /**
+     * Replaces, in the tree, the subtree rooted at {@code n} (whose parent is
+     * {@code parent}) with the subtree rooted at {@code replacement}.
+     *
+     * @param parent
+     *            the parent of n, or null if n is the root of the tree
+     * @param n
+     *            the root of the subtree to be replaced
+     * @param replacement
+     *            the root of the new subtree, or null
+     * @updates $this.root, parent
+     * @requires <pre>
+     * (parent = null  and  n = $this.root)  or
+     * (parent /= null  and  (parent.left = n  or  parent.right = n))
+     * </pre>
+     * @ensures [replacement takes the place of n in the tree]
+     */
+    private void replaceChild(Node parent, Node n, Node replacement) {
+        if (parent == null) {
+            this.root = replacement;
+        } else if (parent.left == n) {
+            parent.left = replacement;
         } else {
-            T elem = t.disassemble(left, right);
-            //if element is bigger, put on the right subtree
-            if (elem.compareTo(x) > 0) {
-                insertInTree(left, x);
-            } else {
-                //otherwise put on left subtree
-                insertInTree(right, x);
-            }
-            //reassemble the tree to read all removed elements
-            t.assemble(elem, left, right);
+            parent.right = replacement;
         }
     }
 
     /**
-     * Removes and returns the smallest (left-most) label in {@code t}.
+     * Removes node {@code n}, whose parent is {@code parent}, from the tree,
+     * keeping the tree a binary search tree. The counts of the ancestors of
+     * {@code n} must already have been decremented.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} from which to remove the label
-     * @return the smallest label in the given {@code BinaryTree}
-     * @updates t
-     * @requires IS_BST(t) and |t| > 0
+     * @param parent
+     *            the parent of n, or null if n is the root of the tree
+     * @param n
+     *            the node to be removed
+     * @updates $this.root
+     * @requires <pre>
+     * n is not null  and
+     * ((parent = null  and  n = $this.root)  or
+     *  (parent /= null  and  (parent.left = n  or  parent.right = n)))  and
+     * [the count of each ancestor of n is one more than the number of nodes
+     *  in its subtree other than n]
+     * </pre>
      * @ensures <pre>
-     * IS_BST(t)  and  removeSmallest = [the smallest label in #t]  and
-     *  labels(t) = labels(#t) \ {removeSmallest}
+     * IS_BST([tree at $this.root])  and
+     * labels([tree at $this.root]) = labels([tree at #$this.root]) \ {n.label}
      * </pre>
      */
-    private static <T> T removeSmallest(BinaryTree<T> t) {
-        assert t != null : "Violation of: t is not null";
-        assert t.size() > 0 : "Violation of: |t| > 0";
-
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
-
-        T smallest = t.disassemble(left, right);
-
-        if (left.height() > 0) {
-            /*
-             * if there are more elements within left subtrees, then keep
-             * calling on the left side
-             */
-            smallest = removeSmallest(left);
+    private void unlink(Node parent, Node n) {
+        if (n.left == null) {
+            this.replaceChild(parent, n, n.right);
+        } else if (n.right == null) {
+            this.replaceChild(parent, n, n.left);
         } else {
-            /*
-             * if there are no nodes smaller, then the element on the right is
-             * the smallest
-             */
-            t.transferFrom(right);
+            //replace n with the node of smallest label on its right
+            Node successorParent = n;
+            Node successor = n.right;
+            while (successor.left != null) {
+                successorParent = successor;
+                successorParent.count--;
+                successor = successor.left;
+            }
+            if (successorParent != n) {
+                successorParent.left = successor.right;
+                successor.right = n.right;
+            }
+            successor.left = n.left;
+            successor.count = n.count - 1;
+            this.replaceChild(parent, n, successor);
         }
-
-        return smallest;
     }
 
     /**
-     * Finds label {@code x} in {@code t}, removes it from {@code t}, and
-     * returns it.
+     * Returns the labels of the tree, in increasing order.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} from which to remove label {@code x}
-     * @param x
-     *            the label to be removed
-     * @return the removed label
-     * @updates t
-     * @requires IS_BST(t) and x is in labels(t)
+     * @return the sorted labels
      * @ensures <pre>
-     * IS_BST(t)  and  removeFromTree = x  and
-     *  labels(t) = labels(#t) \ {x}
+     * |sortedLabels| = |labels($this.root)|  and
+     * [sortedLabels is labels($this.root) in increasing order]
      * </pre>
      */
-    private static <T extends Comparable<T>> T removeFromTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
-        assert x != null : "Violation of: x is not null";
-        assert t.size() > 0 : "Violation of: x is in labels(t)";
-
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
-        T elem = t.root();
-
-        //if x is equal to root
-        if (x.compareTo(t.root()) == 0) {
-            T root = t.disassemble(left, right);
-            elem = root;
-            //if the size of the left tree is more than 0 and the right isn't
-            if (left.size() > 0 && right.size() == 0) {
-                t.transferFrom(left);
-                //if the size of the right tree is more than 0 and the left isn't
-            } else if (left.size() == 0 && right.size() > 0) {
-                t.transferFrom(right);
-                //if both the left and right tree are more than 0
-            } else if (left.size() > 0 && right.size() > 0) {
-                elem = removeSmallest(right);
-                t.assemble(root, left, right);
-            }
+    @SuppressWarnings("unchecked")
+    private T[] sortedLabels() {
+        /*
+         * T extends Comparable, so Comparable[] is the erasure of T[] and the
+         * cast cannot fail
+         */
+        T[] sorted = (T[]) new Comparable<?>[this.size()];
+        Iterator<T> it = new Set3aIterator(null, null);
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = it.next();
+        }
+        return sorted;
+    }
 
-            //if x is less than root
-        } else if (x.compareTo(t.root()) < 0) {
-            T root = t.disassemble(left, right);
-            elem = removeFromTree(left, x);
-            t.assemble(root, left, right);
-            //if x is more than root
-        } else {
-            T root = t.disassemble(left, right);
-            elem = removeFromTree(right, x);
-            t.assemble(root, left, right);
+    /**
+     * Builds a perfectly balanced binary search tree of the labels
+     * {@code sorted[lo, hi)}, with the median at the root of each subtree,
+     * and returns its root.
+     *
+     * @param sorted
+     *            the labels, in increasing order
+     * @param lo
+     *            the index of the first label of the tree
+     * @param hi
+     *            the index after the last label of the tree
+     * @return the root of the tree, or null if lo = hi
+     * @requires <pre>
+     * 0 <= lo <= hi <= |sorted|  and
+     * [sorted[lo, hi) is strictly increasing]
+     * </pre>
+     * @ensures <pre>
+     * IS_BST(build)  and  labels(build) = entries(sorted[lo, hi))  and
+     * [the heights of the two subtrees of every node of build differ by at
+     *  most one]
+     * </pre>
+     */
+    private Node build(T[] sorted, int lo, int hi) {
+        Node n = null;
+        if (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            n = new Node();
+            n.label = sorted[mid];
+            n.count = hi - lo;
+            n.left = this.build(sorted, lo, mid);
+            n.right = this.build(sorted, mid + 1, hi);
         }
+        return n;
+    }
 
-        return elem;
+    /**
+     * Replaces the contents of {@code this} with those of a perfectly
+     * balanced tree of {@code sorted[0, length)}.
+     *
+     * @param sorted
+     *            the new elements, in increasing order
+     * @param length
+     *            the number of new elements
+     * @replaces this
+     * @requires <pre>
+     * 0 <= length <= |sorted|  and  [sorted[0, length) is strictly increasing]
+     * </pre>
+     * @ensures this = entries(sorted[0, length))
+     */
+    private void rebuild(T[] sorted, int length) {
+        this.root = this.build(sorted, 0, length);
     }
 
     /**
@@ -229,8 +307,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
      */
     private void createNewRep() {
 
-        //use BinaryTree1 for representation
-        this.tree = new BinaryTree1<>();
+        this.root = null;
 
     }
 
@@ -247,6 +324,90 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
 
     }
 
+    /**
+     * Returns a new {@code Set3a} of the elements returned by {@code sorted},
+     * which must return them in increasing order, built in linear time as a
+     * perfectly balanced tree. If {@code dedupe}, an element equal to the one
+     * before it is skipped; otherwise it is rejected like an element out of
+     * order.
+     *
+     * @param <T>
+     *            type of {@code Set} elements
+     * @param sorted
+     *            the elements, in increasing order
+     * @param dedupe
+     *            whether repeated elements are skipped rather than rejected
+     * @return the new set
+     * @throws IllegalArgumentException
+     *             if an element is smaller than the one before it, or equal
+     *             to it and not dedupe
+     * @updates sorted
+     * @ensures <pre>
+     * ~sorted.unseen = <>  and
+     * fromSorted = [set of the entries of #sorted.unseen]
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<T>> Set3a<T> fromSorted(
+            Iterator<? extends T> sorted, boolean dedupe) {
+        assert sorted != null : "Violation of: sorted is not null";
+
+        /*
+         * T extends Comparable, so Comparable[] is the erasure of T[] and the
+         * cast cannot fail
+         */
+        T[] labels = (T[]) new Comparable<?>[INITIAL_CAPACITY];
+        int length = 0;
+        while (sorted.hasNext()) {
+            T x = sorted.next();
+            assert x != null : "Violation of: elements are not null";
+            int cmp = 1;
+            if (length > 0) {
+                cmp = x.compareTo(labels[length - 1]);
+            }
+            if (cmp < 0 || (cmp == 0 && !dedupe)) {
+                throw new IllegalArgumentException("Elements are not strictly"
+                        + " increasing: " + x + " follows "
+                        + labels[length - 1]);
+            }
+            if (cmp > 0) {
+                if (length == labels.length) {
+                    labels = Arrays.copyOf(labels, 2 * labels.length);
+                }
+                labels[length] = x;
+                length++;
+            }
+        }
+        Set3a<T> set = new Set3a<>();
+        set.rebuild(labels, length);
+        return set;
+    }
+
+    /**
+     * Returns a new {@code Set3a} of the elements of {@code sorted}, which
+     * must be in increasing order, built in linear time as a perfectly
+     * balanced tree. If {@code dedupe}, an element equal to the one before it
+     * is skipped; otherwise it is rejected like an element out of order.
+     *
+     * @param <T>
+     *            type of {@code Set} elements
+     * @param sorted
+     *            the elements, in increasing order
+     * @param dedupe
+     *            whether repeated elements are skipped rather than rejected
+     * @return the new set
+     * @throws IllegalArgumentException
+     *             if an element is smaller than the one before it, or equal
+     *             to it and not dedupe
+     * @ensures fromSorted = [set of the entries of sorted]
+     */
+    public static <T extends Comparable<T>> Set3a<T> fromSorted(T[] sorted,
+            boolean dedupe) {
+        assert sorted != null : "Violation of: sorted is not null";
+
+        return fromSorted(Arrays.asList(sorted).iterator(), dedupe);
+    }
+
     /*
      * Standard methods -------------------------------------------------------
      */
@@ -279,7 +440,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
          * the ? must be T or the call would not have compiled.
          */
         Set3a<T> localSource = (Set3a<T>) source;
-        this.tree = localSource.tree;
+        this.root = localSource.root;
         localSource.createNewRep();
     }
 
@@ -292,7 +453,31 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         assert x != null : "Violation of: x is not null";
         assert !this.contains(x) : "Violation of: x is not in this";
 
-        insertInTree(this.tree, x);
+        Node added = new Node();
+        added.label = x;
+        added.count = 1;
+
+        if (this.root == null) {
+            this.root = added;
+        } else {
+            //walk down to the empty subtree where x belongs, and put it there
+            Node n = this.root;
+            Node next = n;
+            while (next != null) {
+                n = next;
+                n.count++;
+                if (x.compareTo(n.label) < 0) {
+                    next = n.left;
+                } else {
+                    next = n.right;
+                }
+            }
+            if (x.compareTo(n.label) < 0) {
+                n.left = added;
+            } else {
+                n.right = added;
+            }
+        }
 
     }
 
@@ -301,31 +486,488 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         assert x != null : "Violation of: x is not null";
         assert this.contains(x) : "Violation of: x is in this";
 
-        return removeFromTree(this.tree, x);
+        Node parent = null;
+        Node n = this.root;
+        int cmp = x.compareTo(n.label);
+        while (cmp != 0) {
+            parent = n;
+            parent.count--;
+            if (cmp < 0) {
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+            cmp = x.compareTo(n.label);
+        }
+        this.unlink(parent, n);
+
+        return n.label;
     }
 
     @Override
     public final T removeAny() {
         assert this.size() > 0 : "Violation of: this /= empty_set";
 
-        return removeSmallest(this.tree);
+        //the smallest label is the one at the end of the left-most path
+        Node parent = null;
+        Node n = this.root;
+        while (n.left != null) {
+            parent = n;
+            parent.count--;
+            n = n.left;
+        }
+        this.unlink(parent, n);
+
+        return n.label;
     }
 
     @Override
     public final boolean contains(T x) {
         assert x != null : "Violation of: x is not null";
 
-        return isInTree(this.tree, x);
+        return this.find(x) != null;
     }
 
     @Override
     public final int size() {
-        return this.tree.size();
+        return this.count(this.root);
     }
 
     @Override
     public final Iterator<T> iterator() {
-        return this.tree.iterator();
+        return new Set3aIterator(null, null);
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports the smallest element of {@code this}.
+     *
+     * @return the smallest element of this
+     * @requires |this| > 0
+     * @ensures first is in this  and  [first <= x for every x in this]
+     */
+    public final T first() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        Node n = this.root;
+        while (n.left != null) {
+            n = n.left;
+        }
+        return n.label;
+    }
+
+    /**
+     * Reports the largest element of {@code this}.
+     *
+     * @return the largest element of this
+     * @requires |this| > 0
+     * @ensures last is in this  and  [x <= last for every x in this]
+     */
+    public final T last() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        Node n = this.root;
+        while (n.right != null) {
+            n = n.right;
+        }
+        return n.label;
+    }
+
+    /**
+     * Reports the largest element of {@code this} that is not larger than
+     * {@code x}, or null if there is none.
+     *
+     * @param x
+     *            the bound
+     * @return the largest element of this that is <= x, or null
+     * @ensures <pre>
+     * if there exists y in this with y <= x then
+     *   floor is in this  and  floor <= x  and
+     *   [y <= floor for every y in this with y <= x]
+     * else
+     *   floor = null
+     * </pre>
+     */
+    public final T floor(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        T floor = null;
+        Node n = this.root;
+        while (n != null) {
+            int cmp = x.compareTo(n.label);
+            if (cmp < 0) {
+                n = n.left;
+            } else {
+                //n.label is a candidate; anything better is on its right
+                floor = n.label;
+                if (cmp == 0) {
+                    n = null;
+                } else {
+                    n = n.right;
+                }
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * Reports the smallest element of {@code this} that is not smaller than
+     * {@code x}, or null if there is none.
+     *
+     * @param x
+     *            the bound
+     * @return the smallest element of this that is >= x, or null
+     * @ensures <pre>
+     * if there exists y in this with x <= y then
+     *   ceiling is in this  and  x <= ceiling  and
+     *   [ceiling <= y for every y in this with x <= y]
+     * else
+     *   ceiling = null
+     * </pre>
+     */
+    public final T ceiling(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        T ceiling = null;
+        Node n = this.root;
+        while (n != null) {
+            int cmp = x.compareTo(n.label);
+            if (cmp > 0) {
+                n = n.right;
+            } else {
+                //n.label is a candidate; anything better is on its left
+                ceiling = n.label;
+                if (cmp == 0) {
+                    n = null;
+                } else {
+                    n = n.left;
+                }
+            }
+        }
+        return ceiling;
+    }
+
+    /**
+     * Reports the number of elements of {@code this} smaller than {@code x},
+     * which is the position {@code x} has, or would have, in the sorted
+     * elements of {@code this}, counting from 0.
+     *
+     * @param x
+     *            the element to rank
+     * @return the number of elements of this that are < x
+     * @ensures rank = |{y: T where (y is in this  and  y < x)}|
+     */
+    public final int rank(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        int rank = 0;
+        Node n = this.root;
+        while (n != null) {
+            int cmp = x.compareTo(n.label);
+            if (cmp < 0) {
+                n = n.left;
+            } else if (cmp > 0) {
+                //n and its left subtree are all smaller than x
+                rank += this.count(n.left) + 1;
+                n = n.right;
+            } else {
+                rank += this.count(n.left);
+                n = null;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Reports the element of {@code this} at position {@code i} of its
+     * sorted elements, counting from 0.
+     *
+     * @param i
+     *            the position of the element
+     * @return the element of this with i smaller elements in this
+     * @requires 0 <= i < |this|
+     * @ensures select is in this  and  rank(select) = i
+     */
+    public final T select(int i) {
+        assert 0 <= i : "Violation of: 0 <= i";
+        assert i < this.size() : "Violation of: i < |this|";
+
+        Node n = this.root;
+        int position = i;
+        int leftCount = this.count(n.left);
+        while (position != leftCount) {
+            if (position < leftCount) {
+                n = n.left;
+            } else {
+                position -= leftCount + 1;
+                n = n.right;
+            }
+            leftCount = this.count(n.left);
+        }
+        return n.label;
+    }
+
+    /**
+     * Returns an iterator over the elements of {@code this} that are at least
+     * {@code lo} and smaller than {@code hi}, in increasing order. The
+     * iterator walks the tree as it goes rather than copying the elements, so
+     * {@code this} must not be changed while it is in use.
+     *
+     * @param lo
+     *            the smallest element that may be returned
+     * @param hi
+     *            the bound all returned elements are smaller than
+     * @return an iterator over the elements in [lo, hi)
+     * @requires lo <= hi
+     * @ensures <pre>
+     * [rangeIterator returns, in increasing order, the elements y of this
+     *  with lo <= y < hi]
+     * </pre>
+     */
+    public final Iterator<T> rangeIterator(T lo, T hi) {
+        assert lo != null : "Violation of: lo is not null";
+        assert hi != null : "Violation of: hi is not null";
+        assert lo.compareTo(hi) <= 0 : "Violation of: lo <= hi";
+
+        return new Set3aIterator(lo, hi);
+    }
+
+    @Override
+    public final void add(Set<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        if (!(s instanceof Set3a<?>)) {
+            super.add(s);
+        } else {
+            Set3a<T> other = (Set3a<T>) s;
+            T[] a = this.sortedLabels();
+            T[] b = other.sortedLabels();
+            T[] union = Arrays.copyOf(a, a.length + b.length);
+            T[] both = Arrays.copyOf(a, Math.min(a.length, b.length));
+            int i = 0;
+            int j = 0;
+            int u = 0;
+            int k = 0;
+            //merge a and b, sending common elements to both sets
+            while (i < a.length || j < b.length) {
+                int cmp;
+                if (i == a.length) {
+                    cmp = 1;
+                } else if (j == b.length) {
+                    cmp = -1;
+                } else {
+                    cmp = a[i].compareTo(b[j]);
+                }
+                if (cmp < 0) {
+                    union[u] = a[i];
+                    i++;
+                } else if (cmp > 0) {
+                    union[u] = b[j];
+                    j++;
+                } else {
+                    union[u] = a[i];
+                    both[k] = b[j];
+                    k++;
+                    i++;
+                    j++;
+                }
+                u++;
+            }
+            this.rebuild(union, u);
+            other.rebuild(both, k);
+        }
+    }
+
+    @Override
+    public final Set<T> remove(Set<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        Set<T> removed;
+        if (!(s instanceof Set3a<?>)) {
+            removed = super.remove(s);
+        } else {
+            T[] a = this.sortedLabels();
+            T[] b = ((Set3a<T>) s).sortedLabels();
+            T[] difference = Arrays.copyOf(a, a.length);
+            T[] both = Arrays.copyOf(a, Math.min(a.length, b.length));
+            int j = 0;
+            int d = 0;
+            int k = 0;
+            for (int i = 0; i < a.length; i++) {
+                while (j < b.length && b[j].compareTo(a[i]) < 0) {
+                    j++;
+                }
+                if (j < b.length && b[j].compareTo(a[i]) == 0) {
+                    both[k] = a[i];
+                    k++;
+                } else {
+                    difference[d] = a[i];
+                    d++;
+                }
+            }
+            this.rebuild(difference, d);
+            Set3a<T> intersection = (Set3a<T>) this.newInstance();
+            intersection.rebuild(both, k);
+            removed = intersection;
+        }
+        return removed;
+    }
+
+    /**
+     * Removes from {@code this} every element that is not in {@code s}.
+     *
+     * @param s
+     *            the set to intersect with
+     * @updates this
+     * @requires s is not this
+     * @ensures this = #this intersection s
+     */
+    public final void intersect(Set<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        if (!(s instanceof Set3a<?>)) {
+            T[] a = this.sortedLabels();
+            int k = 0;
+            for (int i = 0; i < a.length; i++) {
+                if (s.contains(a[i])) {
+                    a[k] = a[i];
+                    k++;
+                }
+            }
+            this.rebuild(a, k);
+        } else {
+            T[] a = this.sortedLabels();
+            T[] b = ((Set3a<T>) s).sortedLabels();
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < a.length && j < b.length) {
+                int cmp = a[i].compareTo(b[j]);
+                if (cmp < 0) {
+                    i++;
+                } else if (cmp > 0) {
+                    j++;
+                } else {
+                    //a[k, i) holds no more kept elements, so reuse it
+                    a[k] = a[i];
+                    k++;
+                    i++;
+                    j++;
+                }
+            }
+            this.rebuild(a, k);
+        }
+    }
+
+    @Override
+    public final boolean isSubset(Set<T> s) {
+        assert s != null : "Violation of: s is not null";
+
+        boolean isSubset;
+        if (!(s instanceof Set3a<?>)) {
+            isSubset = super.isSubset(s);
+        } else {
+            isSubset = this.size() <= s.size();
+            Iterator<T> mine = new Set3aIterator(null, null);
+            Iterator<T> theirs = ((Set3a<T>) s).new Set3aIterator(
+                    null, null);
+            //walk both in order, stopping at the first element not in s
+            while (isSubset && mine.hasNext()) {
+                T x = mine.next();
+                int cmp = 1;
+                while (cmp > 0 && theirs.hasNext()) {
+                    cmp = x.compareTo(theirs.next());
+                }
+                isSubset = cmp == 0;
+            }
+        }
+        return isSubset;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3a}, which
+     * returns the elements in a range in increasing order; a null bound leaves
+     * that end of the range open. The iterator is lazy: it holds at most one
+     * node per level of the tree and only visits the nodes it returns and
+     * their ancestors, so stopping early costs only what was read. The nodes
+     * whose labels and right subtrees are still to be visited are kept on a
+     * stack, each below the one before it; the node on top is the next one to
+     * visit.
+     */
+    private final class Set3aIterator implements Iterator<T> {
+
+        /**
+         * Nodes still to be visited.
+         */
+        private final Deque<Node> path;
+
+        /**
+         * Bound all returned elements are smaller than, or null if there is
+         * none.
+         */
+        private final T hi;
+
+        /**
+         * Constructor from range.
+         *
+         * @param lo
+         *            the smallest element that may be returned, or null
+         * @param hi
+         *            the bound all returned elements are smaller than, or null
+         */
+        private Set3aIterator(T lo, T hi) {
+            this.path = new ArrayDeque<>();
+            this.hi = hi;
+            //push the nodes at or above lo on the search path for lo
+            Node n = Set3a.this.root;
+            while (n != null) {
+                if (lo == null || lo.compareTo(n.label) <= 0) {
+                    this.path.push(n);
+                    n = n.left;
+                } else {
+                    n = n.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.path.isEmpty() && (this.hi == null
+                    || this.path.peek().label.compareTo(this.hi) < 0);
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node n = this.path.pop();
+            Node p = n.right;
+            while (p != null) {
+                this.path.push(p);
+                p = p.left;
+            }
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
     }
 
 }
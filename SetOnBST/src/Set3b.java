@@ -0,0 +1,573 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as an AVL tree (a height-balanced binary search
+ * tree) of elements, done "bare-handed", with implementations of primary
+ * methods.
+ *
+ * <p>
+ * Unlike {@code Set3a}, whose tree degenerates into a chain when elements are
+ * added in sorted order, the heights of the two subtrees of every node differ
+ * by at most one, so the height of the tree is at most about 1.44 log n and
+ * {@code add}, {@code remove}, and {@code contains} are O(log n) whatever the
+ * order of the calls. {@code add} and {@code remove} restore the balance with
+ * at most one single or double rotation per node on the path they walk.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @mathdefinitions <pre>
+ * IS_BST(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [tree satisfies the binary search tree properties as described in the
+ *   slides with the ordering reported by compareTo for T, including that
+ *   it has no duplicate labels]
+ *
+ * IS_AVL(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [for every subtree of tree, the heights of its left and right subtrees
+ *   differ by at most one]
+ * </pre>
+ * @convention <pre>
+ * [$this.root is null or points to the root of a binary tree of nodes]  and
+ * IS_BST([that tree])  and  IS_AVL([that tree])  and
+ * [for every node n of that tree, n.height is the height of the subtree
+ *  rooted at n]  and
+ * $this.size = [number of nodes of that tree]
+ * </pre>
+ * @correspondence this = [labels of the nodes of the tree at $this.root]
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class Set3b<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Node class for AVL tree nodes.
+     */
+    private final class Node {
+
+        /**
+         * Label of node.
+         */
+        private T label;
+
+        /**
+         * Root of left subtree, or null if it is empty.
+         */
+        private Node left;
+
+        /**
+         * Root of right subtree, or null if it is empty.
+         */
+        private Node right;
+
+        /**
+         * Height of the subtree rooted at this node.
+         */
+        private int height;
+
+    }
+
+    /**
+     * Root of the tree, or null if {@code this} is empty.
+     */
+    private Node root;
+
+    /**
+     * Number of nodes in the tree.
+     */
+    private int size;
+
+    /**
+     * Returns the height of the subtree rooted at {@code n}.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @return the height of the subtree, 0 if it is empty
+     */
+    private int height(Node n) {
+        int height = 0;
+        if (n != null) {
+            height = n.height;
+        }
+        return height;
+    }
+
+    /**
+     * Recomputes the height of {@code n} from those of its children.
+     *
+     * @param n
+     *            the node
+     * @updates n.height
+     * @requires [the heights of the children of n are correct]
+     * @ensures [n.height is the height of the subtree rooted at n]
+     */
+    private void updateHeight(Node n) {
+        n.height = Math.max(this.height(n.left), this.height(n.right)) + 1;
+    }
+
+    /**
+     * Rotates the subtree rooted at {@code n} to the right, so that its left
+     * child becomes its root.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @updates n
+     * @requires n.left is not null
+     * @ensures <pre>
+     * rotateRight = #n.left  and
+     * [in-order labels of the subtree are unchanged]  and
+     * [heights of n and rotateRight are correct]
+     * </pre>
+     */
+    private Node rotateRight(Node n) {
+        Node pivot = n.left;
+        n.left = pivot.right;
+        pivot.right = n;
+        this.updateHeight(n);
+        this.updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * Rotates the subtree rooted at {@code n} to the left, so that its right
+     * child becomes its root.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @updates n
+     * @requires n.right is not null
+     * @ensures <pre>
+     * rotateLeft = #n.right  and
+     * [in-order labels of the subtree are unchanged]  and
+     * [heights of n and rotateLeft are correct]
+     * </pre>
+     */
+    private Node rotateLeft(Node n) {
+        Node pivot = n.right;
+        n.right = pivot.left;
+        pivot.left = n;
+        this.updateHeight(n);
+        this.updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * Restores the AVL property at {@code n}, whose subtrees are AVL trees
+     * with heights differing by at most two, and returns the new root of the
+     * subtree.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @updates n
+     * @requires <pre>
+     * IS_AVL([left subtree of n])  and  IS_AVL([right subtree of n])  and
+     * |height(n.left) - height(n.right)| <= 2
+     * </pre>
+     * @ensures <pre>
+     * IS_AVL([subtree rooted at rebalance])  and
+     * [in-order labels of the subtree are unchanged]
+     * </pre>
+     */
+    private Node rebalance(Node n) {
+        Node root = n;
+        int balance = this.height(n.left) - this.height(n.right);
+        if (balance > 1) {
+            //left-right case: first turn it into a left-left case
+            if (this.height(n.left.left) < this.height(n.left.right)) {
+                n.left = this.rotateLeft(n.left);
+            }
+            root = this.rotateRight(n);
+        } else if (balance < -1) {
+            //right-left case: first turn it into a right-right case
+            if (this.height(n.right.right) < this.height(n.right.left)) {
+                n.right = this.rotateRight(n.right);
+            }
+            root = this.rotateLeft(n);
+        } else {
+            this.updateHeight(n);
+        }
+        return root;
+    }
+
+    /**
+     * Inserts {@code x} in the subtree rooted at {@code n} and returns the new
+     * root of the subtree.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @param x
+     *            the label to be inserted
+     * @return the new root of the subtree
+     * @aliases reference {@code x}
+     * @updates n
+     * @requires IS_BST(n)  and  IS_AVL(n)  and  x is not in labels(n)
+     * @ensures <pre>
+     * IS_BST(insert)  and  IS_AVL(insert)  and
+     * labels(insert) = labels(#n) union {x}
+     * </pre>
+     */
+    private Node insert(Node n, T x) {
+        Node root;
+        if (n == null) {
+            root = new Node();
+            root.label = x;
+            root.height = 1;
+        } else {
+            if (x.compareTo(n.label) < 0) {
+                n.left = this.insert(n.left, x);
+            } else {
+                n.right = this.insert(n.right, x);
+            }
+            root = this.rebalance(n);
+        }
+        return root;
+    }
+
+    /**
+     * Returns the node of the subtree rooted at {@code n} whose label is
+     * {@code x}, or null if there is none.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @param x
+     *            the label to be searched for
+     * @return the node labeled x, or null
+     * @requires IS_BST(n)
+     * @ensures <pre>
+     * if x is in labels(n) then find.label = x  else  find = null
+     * </pre>
+     */
+    private Node find(Node n, T x) {
+        Node p = n;
+        int cmp = 1;
+        while (p != null && cmp != 0) {
+            cmp = x.compareTo(p.label);
+            if (cmp < 0) {
+                p = p.left;
+            } else if (cmp > 0) {
+                p = p.right;
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Removes the node with the smallest label from the subtree rooted at
+     * {@code n} and returns the new root of the subtree.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @updates n
+     * @requires n is not null  and  IS_BST(n)  and  IS_AVL(n)
+     * @ensures <pre>
+     * IS_BST(removeSmallest)  and  IS_AVL(removeSmallest)  and
+     * labels(removeSmallest) = labels(#n) \ {[the smallest label in #n]}
+     * </pre>
+     */
+    private Node removeSmallest(Node n) {
+        Node root;
+        if (n.left == null) {
+            root = n.right;
+        } else {
+            n.left = this.removeSmallest(n.left);
+            root = this.rebalance(n);
+        }
+        return root;
+    }
+
+    /**
+     * Removes label {@code x} from the subtree rooted at {@code n} and returns
+     * the new root of the subtree.
+     *
+     * @param n
+     *            the root of the subtree
+     * @param x
+     *            the label to be removed
+     * @return the new root of the subtree
+     * @updates n
+     * @requires IS_BST(n)  and  IS_AVL(n)  and  x is in labels(n)
+     * @ensures <pre>
+     * IS_BST(remove)  and  IS_AVL(remove)  and
+     * labels(remove) = labels(#n) \ {x}
+     * </pre>
+     */
+    private Node remove(Node n, T x) {
+        Node root;
+        int cmp = x.compareTo(n.label);
+        if (cmp < 0) {
+            n.left = this.remove(n.left, x);
+            root = this.rebalance(n);
+        } else if (cmp > 0) {
+            n.right = this.remove(n.right, x);
+            root = this.rebalance(n);
+        } else if (n.left == null) {
+            root = n.right;
+        } else if (n.right == null) {
+            root = n.left;
+        } else {
+            //replace n with the node of smallest label on its right
+            Node successor = n.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = this.removeSmallest(n.right);
+            successor.left = n.left;
+            root = this.rebalance(successor);
+        }
+        return root;
+    }
+
+    /**
+     * Checks that the subtree rooted at {@code n} is an AVL tree with correct
+     * heights whose labels are strictly between {@code low} and {@code high},
+     * and returns its number of nodes.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @param low
+     *            lower bound on the labels, or null if there is none
+     * @param high
+     *            upper bound on the labels, or null if there is none
+     * @return the number of nodes in the subtree
+     */
+    private int checkedSize(Node n, T low, T high) {
+        int count = 0;
+        if (n != null) {
+            assert low == null || low.compareTo(n.label) < 0 : ""
+                    + "Violation of: IS_BST([tree at $this.root])";
+            assert high == null || n.label.compareTo(high) < 0 : ""
+                    + "Violation of: IS_BST([tree at $this.root])";
+            int leftHeight = this.height(n.left);
+            int rightHeight = this.height(n.right);
+            assert Math.abs(leftHeight - rightHeight) <= 1 : ""
+                    + "Violation of: IS_AVL([tree at $this.root])";
+            assert n.height == Math.max(leftHeight, rightHeight) + 1 : ""
+                    + "Violation of: [n.height is the height of the subtree"
+                    + " rooted at n]";
+            count = this.checkedSize(n.left, low, n.label)
+                    + this.checkedSize(n.right, n.label, high) + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Checks that the convention holds for the current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     */
+    private boolean conventionHolds() {
+        assert this.checkedSize(this.root, null, null) == this.size : ""
+                + "Violation of: $this.size = [number of nodes of that tree]";
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+
+        this.root = null;
+        this.size = 0;
+
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set3b() {
+
+        this.createNewRep();
+        assert this.conventionHolds();
+
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set3b<?> : ""
+                + "Violation of: source is of dynamic type Set3b<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set3b<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set3b<T> localSource = (Set3b<T>) source;
+        this.root = localSource.root;
+        this.size = localSource.size;
+        localSource.createNewRep();
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        this.root = this.insert(this.root, x);
+        this.size++;
+
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        T removed = this.find(this.root, x).label;
+        this.root = this.remove(this.root, x);
+        this.size--;
+
+        assert this.conventionHolds();
+
+        return removed;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        //the root needs no search, and one of its neighbors takes its place
+        return this.remove(this.root.label);
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        return this.find(this.root, x) != null;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Set3bIterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3b}, which
+     * visits the labels in increasing order, keeping on an explicit stack the
+     * nodes whose labels and right subtrees are still to be visited.
+     */
+    private final class Set3bIterator implements Iterator<T> {
+
+        /**
+         * Nodes still to be visited, each below the one before it; the node
+         * on top is the next one to visit.
+         */
+        private final Object[] stack;
+
+        /**
+         * Number of nodes on the stack.
+         */
+        private int depth;
+
+        /**
+         * No-argument constructor.
+         */
+        private Set3bIterator() {
+            this.stack = new Object[Set3b.this.height(Set3b.this.root)];
+            this.depth = 0;
+            this.pushLeftPath(Set3b.this.root);
+        }
+
+        /**
+         * Pushes {@code n} and its chain of left descendants on the stack.
+         *
+         * @param n
+         *            the top of the chain, or null
+         */
+        private void pushLeftPath(Node n) {
+            Node p = n;
+            while (p != null) {
+                this.stack[this.depth] = p;
+                this.depth++;
+                p = p.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.depth > 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.depth--;
+            Node n = (Node) this.stack[this.depth];
+            this.stack[this.depth] = null;
+            this.pushLeftPath(n.right);
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code PersistentSet3a}.
+ */
+public class PersistentSet3aTest extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new PersistentSet3a<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Test that a snapshot keeps its value while the original is changed,
+     * including removals of nodes with two children, and that changing the
+     * snapshot does not change the original.
+     */
+    @Test
+    public final void testSnapshotIsolation() {
+        PersistentSet3a<String> s = new PersistentSet3a<String>();
+        String[] elements = { "m", "f", "t", "c", "j", "p", "w", "h", "k" };
+        for (String x : elements) {
+            s.add(x);
+        }
+        PersistentSet3a<String> snapshot = s.snapshot();
+        Iterator<String> it = snapshot.iterator();
+        assertEquals("c", it.next());
+
+        s.remove("f");
+        s.remove("m");
+        s.add("a");
+        String removed = s.removeAny();
+        snapshot.add("z");
+
+        StringBuilder seen = new StringBuilder("c");
+        while (it.hasNext()) {
+            seen.append(it.next());
+        }
+        assertEquals("cfhjkmptw", seen.toString());
+        seen.setLength(0);
+        for (String x : snapshot) {
+            seen.append(x);
+        }
+        assertEquals("cfhjkmptwz", seen.toString());
+        assertEquals(false, s.contains(removed));
+        assertEquals(true, snapshot.contains(removed));
+        assertEquals(7, s.size());
+        assertEquals(10, snapshot.size());
+        assertEquals(false, s.contains("z"));
+        assertEquals(false, snapshot.contains("a"));
+    }
+
+}
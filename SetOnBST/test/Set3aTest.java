@@ -1,3 +1,10 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Test;
+
 import components.set.Set;
 import components.set.Set1L;
 
@@ -16,4 +23,219 @@ public class Set3aTest extends SetTest {
         return new Set1L<String>();
     }
 
+    /**
+     * Test removing nodes with two children, whose successors are at various
+     * depths, and the root, checking the remaining elements each time.
+     */
+    @Test
+    public final void testRemoveInnerNodes() {
+        Set<String> s = this.constructorTest();
+        Set<String> sExpected = this.constructorRef();
+        String[] elements = { "m", "f", "t", "c", "j", "p", "w", "h", "k",
+            "i", "r", "q" };
+        for (String x : elements) {
+            s.add(x);
+            sExpected.add(x);
+        }
+        String[] removals = { "f", "t", "m", "j", "p" };
+        for (String x : removals) {
+            assertEquals(sExpected.remove(x), s.remove(x));
+            assertEquals(sExpected, s);
+        }
+        StringBuilder seen = new StringBuilder();
+        for (String x : s) {
+            seen.append(x);
+        }
+        assertEquals("chikqrw", seen.toString());
+    }
+
+    /**
+     * Test first, last, floor, ceiling, rank, and select, including after
+     * removals, against the sorted elements.
+     */
+    @Test
+    public final void testOrderedQueries() {
+        Set3a<String> s = new Set3a<String>();
+        String[] elements = { "m", "f", "t", "c", "j", "p", "w", "h", "k" };
+        for (String x : elements) {
+            s.add(x);
+        }
+        s.remove("m");
+        s.remove("c");
+        String sorted = "fhjkptw";
+        assertEquals("f", s.first());
+        assertEquals("w", s.last());
+        for (int i = 0; i < sorted.length(); i++) {
+            String x = sorted.substring(i, i + 1);
+            assertEquals(x, s.select(i));
+            assertEquals(i, s.rank(x));
+        }
+        assertEquals(0, s.rank("a"));
+        assertEquals(4, s.rank("l"));
+        assertEquals(7, s.rank("z"));
+        assertEquals(null, s.floor("e"));
+        assertEquals("k", s.floor("l"));
+        assertEquals("k", s.floor("k"));
+        assertEquals("w", s.floor("z"));
+        assertEquals("f", s.ceiling("a"));
+        assertEquals("p", s.ceiling("l"));
+        assertEquals("p", s.ceiling("p"));
+        assertEquals(null, s.ceiling("x"));
+    }
+
+    /**
+     * Test rangeIterator on ranges inside, overlapping, and outside the
+     * elements, and on an empty range.
+     */
+    @Test
+    public final void testRangeIterator() {
+        Set3a<String> s = new Set3a<String>();
+        String[] elements = { "m", "f", "t", "c", "j", "p", "w", "h", "k" };
+        for (String x : elements) {
+            s.add(x);
+        }
+        String[][] cases = { { "g", "q", "hjkmp" }, { "a", "g", "cf" },
+            { "f", "f", "" }, { "x", "z", "" }, { "a", "z", "cfhjkmptw" } };
+        for (String[] c : cases) {
+            StringBuilder seen = new StringBuilder();
+            Iterator<String> it = s.rangeIterator(c[0], c[1]);
+            while (it.hasNext()) {
+                seen.append(it.next());
+            }
+            assertEquals(c[2], seen.toString());
+        }
+    }
+
+    /**
+     * Creates a {@code Set3a} of the multiples of {@code step} in
+     * [0, {@code limit}), as zero-padded strings so that they sort
+     * numerically.
+     *
+     * @param step
+     *            the step between elements
+     * @param limit
+     *            the bound on the elements
+     * @return the set
+     */
+    private static Set3a<String> multiples(int step, int limit) {
+        Set3a<String> s = new Set3a<String>();
+        for (int i = 0; i < limit; i += step) {
+            s.add(String.format("%04d", i));
+        }
+        return s;
+    }
+
+    /**
+     * Test union, difference, intersection, and isSubset between two
+     * {@code Set3a}s, against the reference implementation, and the ordered
+     * queries on the rebuilt trees.
+     */
+    @Test
+    public final void testSetAlgebra() {
+        final int limit = 300;
+        Set3a<String> evens = multiples(2, limit);
+        Set3a<String> threes = multiples(3, limit);
+        Set3a<String> sixes = multiples(6, limit);
+        Set<String> evensRef = this.constructorRef();
+        Set<String> threesRef = this.constructorRef();
+        for (String x : evens) {
+            evensRef.add(x);
+        }
+        for (String x : threes) {
+            threesRef.add(x);
+        }
+
+        assertEquals(true, sixes.isSubset(evens));
+        assertEquals(false, evens.isSubset(sixes));
+        assertEquals(false, threes.isSubset(evens));
+
+        Set3a<String> intersection = multiples(2, limit);
+        intersection.intersect(threes);
+        assertEquals(sixes, intersection);
+
+        Set<String> removed = evens.remove(threes);
+        Set<String> removedRef = evensRef.remove(threesRef);
+        assertEquals(removedRef, removed);
+        assertEquals(evensRef, evens);
+
+        evens.add(threes);
+        evensRef.add(threesRef);
+        assertEquals(evensRef, evens);
+        assertEquals(threesRef, threes);
+        assertEquals(0, threes.size());
+
+        int size = evens.size();
+        for (int i = 0; i < size; i++) {
+            assertEquals(i, evens.rank(evens.select(i)));
+        }
+    }
+
+    /**
+     * Test that iteration returns the elements in increasing order, on a
+     * tree built from decreasing input (a chain of left children), and that
+     * an iterator abandoned part way leaves the set unchanged.
+     */
+    @Test
+    public final void testIteratorOnChain() {
+        final int length = 2000;
+        Set3a<String> s = new Set3a<String>();
+        for (int i = length - 1; i >= 0; i--) {
+            s.add(String.format("%04d", i));
+        }
+        Iterator<String> it = s.iterator();
+        for (int i = 0; i < length / 2; i++) {
+            assertEquals(String.format("%04d", i), it.next());
+        }
+        int i = 0;
+        for (String x : s) {
+            assertEquals(String.format("%04d", i), x);
+            i++;
+        }
+        assertEquals(length, i);
+    }
+
+    /**
+     * Test fromSorted on an array, including an empty one, and on an
+     * iterator with repeated elements to skip.
+     */
+    @Test
+    public final void testFromSorted() {
+        String[] sorted = { "a", "c", "e", "g", "i", "k", "m" };
+        Set3a<String> s = Set3a.fromSorted(sorted, false);
+        Set<String> sExpected = this.constructorRef();
+        for (String x : sorted) {
+            sExpected.add(x);
+        }
+        assertEquals(sExpected, s);
+        for (int i = 0; i < sorted.length; i++) {
+            assertEquals(sorted[i], s.select(i));
+        }
+        assertEquals(0, Set3a.fromSorted(new String[0], false).size());
+
+        String[] repeated = { "a", "a", "c", "e", "e", "e", "g", "i", "k",
+            "m", "m" };
+        Set3a<String> t = Set3a
+                .fromSorted(Arrays.asList(repeated).iterator(), true);
+        assertEquals(sExpected, t);
+    }
+
+    /**
+     * Test that fromSorted rejects elements out of order, and repeated
+     * elements unless told to skip them.
+     */
+    @Test
+    public final void testFromSortedRejects() {
+        String[][] bad = { { "a", "c", "b" }, { "a", "b", "b" } };
+        boolean[] dedupe = { true, false };
+        for (int i = 0; i < bad.length; i++) {
+            boolean rejected = false;
+            try {
+                Set3a.fromSorted(bad[i], dedupe[i]);
+            } catch (IllegalArgumentException e) {
+                rejected = true;
+            }
+            assertEquals(true, rejected);
+        }
+    }
+
 }
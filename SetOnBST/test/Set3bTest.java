@@ -0,0 +1,76 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set3b}.
+ */
+public class Set3bTest extends SetTest {
+
+    /**
+     * Number of elements in the sorted-order tests.
+     */
+    private static final int SORTED_LENGTH = 500;
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set3b<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Test adding elements in increasing and then decreasing order, which
+     * calls for every kind of rotation, and removing every other one, with the
+     * AVL convention checked after each call.
+     */
+    @Test
+    public final void testSortedAddsAndRemoves() {
+        Set<String> s = this.constructorTest();
+        Set<String> sExpected = this.constructorRef();
+        for (int i = 0; i < SORTED_LENGTH; i++) {
+            String x = String.format("a%04d", i);
+            s.add(x);
+            sExpected.add(x);
+        }
+        for (int i = SORTED_LENGTH; i > 0; i--) {
+            String x = String.format("b%04d", i);
+            s.add(x);
+            sExpected.add(x);
+        }
+        for (int i = 0; i < SORTED_LENGTH; i += 2) {
+            String x = String.format("a%04d", i);
+            assertEquals(sExpected.remove(x), s.remove(x));
+        }
+        assertEquals(sExpected, s);
+        while (s.size() > 0) {
+            String x = s.removeAny();
+            sExpected.remove(x);
+        }
+        assertEquals(0, sExpected.size());
+    }
+
+    /**
+     * Test that iteration visits the elements in increasing order.
+     */
+    @Test
+    public final void testIteratorInOrder() {
+        Set<String> s = this.constructorTest();
+        String[] elements = { "m", "c", "x", "a", "e", "q", "z", "d" };
+        for (String x : elements) {
+            s.add(x);
+        }
+        StringBuilder seen = new StringBuilder();
+        for (String x : s) {
+            seen.append(x);
+        }
+        assertEquals("acdemqxz", seen.toString());
+    }
+
+}
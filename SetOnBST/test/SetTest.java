@@ -148,6 +148,23 @@ public abstract class SetTest {
         assertEquals("2", actualElement);
     }
 
+    /**
+     * Test remove of an element with elements both smaller and larger than it
+     * added after it.
+     */
+    @Test
+    public final void testRemoveElementWithTwoChildren() {
+        Set<String> sActual = this.createFromArgsTest("4", "2", "6", "1", "3",
+                "5", "7");
+        Set<String> sExp = this.createFromArgsRef("2", "6", "1", "3", "5",
+                "7");
+
+        String actualElement = sActual.remove("4");
+
+        assertEquals(sExp, sActual);
+        assertEquals("4", actualElement);
+    }
+
     /*
      * Tests for removeAny
      */
@@ -167,6 +184,26 @@ public abstract class SetTest {
         assertEquals(expElement, actualElement);
     }
 
+    /**
+     * Test removeAny until the set is empty, with elements added in an order
+     * that makes them fall on both sides of each other.
+     */
+    @Test
+    public final void testRemoveAnyUntilEmpty() {
+        Set<String> sActual = this.createFromArgsTest("4", "2", "6", "1", "3",
+                "5", "7");
+        Set<String> sExp = this.createFromArgsRef("4", "2", "6", "1", "3", "5",
+                "7");
+
+        while (sActual.size() > 0) {
+            String x = sActual.removeAny();
+            assertTrue(sExp.contains(x));
+            sExp.remove(x);
+            assertEquals(sExp, sActual);
+        }
+        assertEquals(0, sExp.size());
+    }
+
     /**
      * Test removeAny with the set containing many elements.
      */
@@ -0,0 +1,394 @@
+import java.util.Arrays;
+
+/**
+ * Sorting machine for {@code double}s, represented as a {@code double[]} heap,
+ * with the same modes as {@code SortingMachine}: entries are added in
+ * insertion mode and removed in order in extraction mode. Entries are never
+ * boxed, and the order is a {@code DoubleOrder} rather than a
+ * {@code Comparator<Double>}, so sorting counts or scores allocates nothing per
+ * entry.
+ *
+ * <p>
+ * As in {@code SortingMachine5a}, entries are appended to the array in
+ * insertion mode, {@code changeToExtractionMode} heapifies the array in
+ * place, and sifting moves a hole rather than exchanging entries.
+ * </p>
+ *
+ * @mathmodel <pre>
+ * type DoubleSortingMachineModel is (
+ *   insertion_mode: boolean,
+ *   ordering: binary relation on real,
+ *   contents: finite multiset of real
+ *  )
+ *  exemplar m
+ *  constraint IS_TOTAL_PREORDER(m.ordering)
+ * </pre>
+ * @convention <pre>
+ * IS_TOTAL_PREORDER([relation computed by $this.machineOrder.compare method]  and
+ * 0 <= $this.heapSize <= |$this.heap|  and
+ * if not $this.insertionMode then
+ *   SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,
+ *     [relation computed by $this.machineOrder.compare method])
+ * </pre>
+ * @correspondence <pre>
+ * this = ($this.insertionMode, $this.machineOrder,
+ *         multiset_entries($this.heap[0, $this.heapSize)))
+ * </pre>
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class DoubleSortingMachine {
+
+    /**
+     * Total preorder on {@code double}s.
+     */
+    @FunctionalInterface
+    public interface DoubleOrder {
+
+        /**
+         * Compares {@code a} with {@code b}.
+         *
+         * @param a
+         *            one value
+         * @param b
+         *            the other value
+         * @return negative, zero, or positive as {@code a} comes before, ties
+         *         with, or comes after {@code b}
+         */
+        int compare(double a, double b);
+
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial size of the array.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Order.
+     */
+    private DoubleOrder machineOrder;
+
+    /**
+     * Insertion mode.
+     */
+    private boolean insertionMode;
+
+    /**
+     * Heap.
+     */
+    private double[] heap;
+
+    /**
+     * Heap size.
+     */
+    private int heapSize;
+
+    /**
+     * Given an array that represents a complete binary tree and an index
+     * referring to the root of a subtree that would be a heap except for its
+     * root, sifts the root down to turn that whole subtree into a heap.
+     *
+     * @param array
+     *            the complete binary tree
+     * @param top
+     *            the index of the root of the "subtree"
+     * @param last
+     *            the index of the last entry in the heap
+     * @param order
+     *            total preorder for sorting
+     * @updates array
+     * @requires <pre>
+     * 0 <= top  and  last < |array|  and
+     * SUBTREE_IS_HEAP(array, 2 * top + 1, last,
+     *     [relation computed by order.compare method])  and
+     * SUBTREE_IS_HEAP(array, 2 * top + 2, last,
+     *     [relation computed by order.compare method])
+     * </pre>
+     * @ensures <pre>
+     * SUBTREE_IS_HEAP(array, top, last,
+     *     [relation computed by order.compare method])  and
+     * perms(array, #array)  and
+     * [the entries of array outside the subtree are the same as in #array]
+     * </pre>
+     */
+    private static void siftDown(double[] array, int top, int last,
+            DoubleOrder order) {
+        if (top < last) {
+            double root = array[top];
+            int hole = top;
+            int lastParent = (last - 1) / 2;
+
+            //walk the hole down to a leaf, moving the smaller child up
+            while (hole <= lastParent) {
+                int child = 2 * hole + 1;
+                if (child < last
+                        && order.compare(array[child + 1], array[child]) < 0) {
+                    child++;
+                }
+                array[hole] = array[child];
+                hole = child;
+            }
+
+            //move the old root back up the path to where it belongs
+            int parent = (hole - 1) / 2;
+            while (hole > top && order.compare(root, array[parent]) < 0) {
+                array[hole] = array[parent];
+                hole = parent;
+                parent = (hole - 1) / 2;
+            }
+            array[hole] = root;
+        }
+    }
+
+    /**
+     * Checks if the first {@code length} entries of {@code array} form a
+     * heap.
+     *
+     * @param array
+     *            the complete binary tree
+     * @param length
+     *            the number of entries in the heap
+     * @param order
+     *            total preorder for sorting
+     * @return true iff SUBTREE_IS_HEAP(array, 0, length - 1, order)
+     * @requires 0 <= length <= |array|
+     */
+    private static boolean isHeap(double[] array, int length,
+            DoubleOrder order) {
+        boolean isHeap = true;
+        int i = 1;
+        while (isHeap && i < length) {
+            isHeap = order.compare(array[(i - 1) / 2], array[i]) <= 0;
+            i++;
+        }
+        return isHeap;
+    }
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * 0 <= $this.heapSize <= |$this.heap|  and
+     * if not $this.insertionMode then
+     *   SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,
+     *     [relation computed by $this.machineOrder.compare method])
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        assert 0 <= this.heapSize : "Violation of: 0 <= $this.heapSize";
+        assert this.heapSize <= this.heap.length : ""
+                + "Violation of: $this.heapSize <= |$this.heap|";
+        assert this.insertionMode
+                || isHeap(this.heap, this.heapSize, this.machineOrder) : ""
+                        + "Violation of: if not $this.insertionMode then"
+                        + " SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,"
+                        + " [relation computed by $this.machineOrder.compare"
+                        + " method])";
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param order
+     *            total preorder for sorting
+     * @requires IS_TOTAL_PREORDER([relation computed by order.compare method])
+     * @ensures <pre>
+     * $this.insertionMode = true  and  $this.machineOrder = order  and
+     * |$this.heap| = INITIAL_CAPACITY  and  $this.heapSize = 0
+     * </pre>
+     */
+    private void createNewRep(DoubleOrder order) {
+        this.insertionMode = true;
+        this.machineOrder = order;
+        this.heap = new double[INITIAL_CAPACITY];
+        this.heapSize = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor for the natural (increasing) order, that of
+     * {@code Double.compare}: -0.0 comes before 0.0, and NaN comes last.
+     */
+    public DoubleSortingMachine() {
+        this.createNewRep(Double::compare);
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Constructor from order.
+     *
+     * @param order
+     *            total preorder for sorting
+     * @requires IS_TOTAL_PREORDER([relation computed by order.compare method])
+     */
+    public DoubleSortingMachine(DoubleOrder order) {
+        assert order != null : "Violation of: order is not null";
+
+        this.createNewRep(order);
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    /**
+     * Returns a new object with the same dynamic type and order as
+     * {@code this}, in insertion mode and empty.
+     *
+     * @return new object "like" this
+     * @ensures newInstance = (true, this.ordering, {})
+     */
+    public final DoubleSortingMachine newInstance() {
+        return new DoubleSortingMachine(this.machineOrder);
+    }
+
+    /**
+     * Resets {@code this} to insertion mode and empty, keeping its order.
+     *
+     * @clears this
+     */
+    public final void clear() {
+        this.createNewRep(this.machineOrder);
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Sets {@code this} to the incoming value of {@code source}, and resets
+     * {@code source} to insertion mode and empty.
+     *
+     * @param source
+     *            object whose value is to be transferred
+     * @replaces this
+     * @clears source
+     * @requires source is not this
+     * @ensures this = #source
+     */
+    public final void transferFrom(DoubleSortingMachine source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+
+        this.insertionMode = source.insertionMode;
+        this.machineOrder = source.machineOrder;
+        this.heap = source.heap;
+        this.heapSize = source.heapSize;
+        source.createNewRep(source.machineOrder);
+        assert this.conventionHolds();
+        assert source.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    /**
+     * Adds {@code x} to the contents of {@code this}.
+     *
+     * @param x
+     *            the element to be added
+     * @updates this.contents
+     * @requires this.insertion_mode
+     * @ensures this.contents = #this.contents union {x}
+     */
+    public final void add(double x) {
+        assert this.insertionMode : "Violation of: this.insertion_mode";
+
+        if (this.heapSize == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, 2 * this.heap.length + 1);
+        }
+        this.heap[this.heapSize] = x;
+        this.heapSize++;
+
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Changes the mode of {@code this} from insertion to extraction.
+     *
+     * @updates this.insertion_mode
+     * @requires this.insertion_mode
+     * @ensures not this.insertion_mode
+     */
+    public final void changeToExtractionMode() {
+        assert this.insertionMode : "Violation of: this.insertion_mode";
+
+        this.insertionMode = false;
+        for (int top = this.heapSize / 2 - 1; top >= 0; top--) {
+            siftDown(this.heap, top, this.heapSize - 1, this.machineOrder);
+        }
+
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Removes and returns some "first" ("smallest") entry from the contents
+     * of {@code this}.
+     *
+     * @return the entry removed
+     * @updates this.contents
+     * @requires not this.insertion_mode and this.contents /= {}
+     * @ensures <pre>
+     * removeFirst is in #this.contents  and
+     * this.contents = #this.contents \ {removeFirst}  and
+     * for all x: real where (x is in this.contents)
+     *   ([relation computed by this.ordering](removeFirst, x))
+     * </pre>
+     */
+    public final double removeFirst() {
+        assert !this.insertionMode : "Violation of: not this.insertion_mode";
+        assert this.heapSize > 0 : "Violation of: this.contents /= {}";
+
+        double removed = this.heap[0];
+        this.heapSize--;
+        this.heap[0] = this.heap[this.heapSize];
+        siftDown(this.heap, 0, this.heapSize - 1, this.machineOrder);
+
+        assert this.conventionHolds();
+
+        return removed;
+    }
+
+    /**
+     * Reports whether {@code this} is in insertion mode.
+     *
+     * @return true iff this is in insertion mode
+     * @ensures isInInsertionMode = this.insertion_mode
+     */
+    public final boolean isInInsertionMode() {
+        return this.insertionMode;
+    }
+
+    /**
+     * Reports the order of {@code this}.
+     *
+     * @return the order used by this
+     * @ensures order = this.ordering
+     */
+    public final DoubleOrder order() {
+        return this.machineOrder;
+    }
+
+    /**
+     * Reports the number of entries in {@code this}.
+     *
+     * @return the (multiset) size of this.contents
+     * @ensures size = |this.contents|
+     */
+    public final int size() {
+        return this.heapSize;
+    }
+
+}
@@ -0,0 +1,830 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import components.sortingmachine.SortingMachine;
+import components.sortingmachine.SortingMachineSecondary;
+
+/**
+ * {@code SortingMachine} for more entries than fit in memory, represented as
+ * sorted runs in temporary files plus an in-memory buffer (using an external
+ * merge sort), with implementations of primary methods.
+ *
+ * <p>
+ * In insertion mode entries are collected in a buffer of at most
+ * {@code runLength} entries. Each time the buffer fills up it is handed to the
+ * common fork-join pool, which sorts it and writes it to a temporary file (a
+ * "run") while insertion continues into a new buffer; at most one buffer per
+ * worker thread is waiting to be written at any time, so at most
+ * {@code (parallelism + 1) * runLength} entries are held in memory.
+ * {@code changeToExtractionMode} sorts what is left in the buffer, waits for
+ * the runs being written, and then {@code removeFirst} merges the runs,
+ * keeping the runs in a heap ordered by their first remaining entry. Each run
+ * file is deleted as soon as it has been read to the end, or by
+ * {@code clear}.
+ * </p>
+ *
+ * <p>
+ * Entries are written with Java serialization. Iterating over a machine with
+ * runs on disk reads the run files again, opening each one only when the
+ * iterator gets to it and closing it when the iterator gets to its end. A
+ * file left open by an iterator that is abandoned part way through (with
+ * {@code break}, say) is closed when its run is released: when
+ * {@code removeFirst} reads the run to the end, or on {@code clear} or
+ * {@code transferFrom}.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code SortingMachine} entries
+ * @convention <pre>
+ * IS_TOTAL_PREORDER([relation computed by $this.machineOrder.compare method]  and
+ * $this.runLength > 0  and
+ * 0 <= $this.bufferSize <= |$this.buffer| = $this.runLength  and
+ * [entries of $this.buffer[0, $this.bufferSize) are not null]  and
+ * $this.size = $this.bufferSize +
+ *     [total number of entries left in the runs of $this.spills and
+ *      $this.merge[0, $this.mergeSize)]  and
+ * if $this.insertionMode then
+ *   $this.mergeSize = 0
+ * else
+ *   $this.spills = <>  and  $this.bufferSize = 0  and
+ *   [every run in $this.merge[0, $this.mergeSize) is sorted according to
+ *    $this.machineOrder and has a first remaining entry]  and
+ *   [$this.merge[0, $this.mergeSize) is a heap ordered by the first
+ *    remaining entries of the runs]
+ * </pre>
+ * @correspondence <pre>
+ * this = ($this.insertionMode, $this.machineOrder,
+ *         multiset_entries($this.buffer[0, $this.bufferSize)) union
+ *         [multiset of the entries left in the runs of $this.spills and
+ *          $this.merge[0, $this.mergeSize)])
+ * </pre>
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class ExternalSortingMachine<T extends Serializable>
+        extends SortingMachineSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default maximum number of entries in a run.
+     */
+    private static final int DEFAULT_RUN_LENGTH = 1 << 20;
+
+    /**
+     * Number of entries written between resets of a run's
+     * {@code ObjectOutputStream}, which otherwise keeps a reference to every
+     * object it has written.
+     */
+    private static final int RESET_INTERVAL = 1024;
+
+    /**
+     * Order.
+     */
+    private Comparator<T> machineOrder;
+
+    /**
+     * Insertion mode.
+     */
+    private boolean insertionMode;
+
+    /**
+     * Maximum number of entries in the buffer, and so in a run.
+     */
+    private int runLength;
+
+    /**
+     * Entries not yet handed off to a run.
+     */
+    private T[] buffer;
+
+    /**
+     * Number of entries in the buffer.
+     */
+    private int bufferSize;
+
+    /**
+     * Runs handed off to the fork-join pool, in the order they were started.
+     */
+    private ArrayList<ForkJoinTask<Run<T>>> spills;
+
+    /**
+     * Heap of the runs being merged, ordered by their first remaining entry.
+     */
+    private Run<T>[] merge;
+
+    /**
+     * Number of runs in the merge heap.
+     */
+    private int mergeSize;
+
+    /**
+     * Number of entries in {@code this}.
+     */
+    private int size;
+
+    /**
+     * A sorted sequence of entries, either in memory or in a temporary file,
+     * read from front to back.
+     *
+     * @param <T>
+     *            type of entries
+     */
+    private static final class Run<T> {
+
+        /**
+         * File holding the entries, or null if they are in memory.
+         */
+        private Path file;
+
+        /**
+         * The entries, if they are in memory.
+         */
+        private T[] entries;
+
+        /**
+         * Number of entries in the run.
+         */
+        private final int length;
+
+        /**
+         * Number of entries before {@code head}.
+         */
+        private int position;
+
+        /**
+         * First remaining entry, or null once the run has been read.
+         */
+        private T head;
+
+        /**
+         * Stream reading the file, positioned after {@code head}.
+         */
+        private ObjectInputStream in;
+
+        /**
+         * Streams opened by iterators over the run that have not yet been
+         * read to the end.
+         */
+        private final ArrayList<ObjectInputStream> readers;
+
+        /**
+         * Constructor for a run in memory.
+         *
+         * @param entries
+         *            the sorted entries
+         * @param length
+         *            the number of entries
+         */
+        Run(T[] entries, int length) {
+            this.entries = entries;
+            this.length = length;
+            this.readers = new ArrayList<>();
+        }
+
+        /**
+         * Constructor for a run in a file.
+         *
+         * @param file
+         *            the file holding the sorted entries
+         * @param length
+         *            the number of entries
+         */
+        Run(Path file, int length) {
+            this.file = file;
+            this.length = length;
+            this.readers = new ArrayList<>();
+        }
+
+        /**
+         * Reads the next entry of {@code in}.
+         *
+         * @param <T>
+         *            type of entries
+         * @param in
+         *            the stream
+         * @return the entry read
+         */
+        @SuppressWarnings("unchecked")
+        private static <T> T read(ObjectInputStream in) {
+            try {
+                return (T) in.readObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new AssertionError(
+                        "Run file holds an entry of an unknown class", e);
+            }
+        }
+
+        /**
+         * Closes {@code in}.
+         *
+         * @param in
+         *            the stream
+         */
+        private static void close(ObjectInputStream in) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Opens a stream reading the file of this run.
+         *
+         * @return the stream, positioned at the start of the file
+         */
+        private ObjectInputStream openFile() {
+            try {
+                return new ObjectInputStream(new BufferedInputStream(
+                        Files.newInputStream(this.file)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Starts reading the run, loading its first entry into {@code head}.
+         */
+        void open() {
+            this.position = -1;
+            if (this.file != null) {
+                this.in = this.openFile();
+            }
+            this.advance();
+        }
+
+        /**
+         * Moves {@code head} to the next entry, or to null, releasing the
+         * run's memory or file, if the run has been read to the end.
+         */
+        void advance() {
+            this.position++;
+            if (this.position < this.length) {
+                if (this.file == null) {
+                    this.head = this.entries[this.position];
+                } else {
+                    this.head = read(this.in);
+                }
+            } else {
+                this.head = null;
+                this.release();
+            }
+        }
+
+        /**
+         * Releases the run's memory, closes every stream still reading its
+         * file, and deletes the file.
+         */
+        void release() {
+            this.entries = null;
+            if (this.in != null) {
+                close(this.in);
+                this.in = null;
+            }
+            for (ObjectInputStream reader : this.readers) {
+                close(reader);
+            }
+            this.readers.clear();
+            try {
+                if (this.file != null) {
+                    Files.deleteIfExists(this.file);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Returns the first remaining entry.
+         *
+         * @return the first remaining entry
+         */
+        T head() {
+            return this.head;
+        }
+
+        /**
+         * Returns an iterator over the remaining entries, from {@code head}
+         * on; reading a file run opens a new stream, so it does not disturb
+         * the merge. The stream is opened on the first call to {@code next},
+         * and is closed by the iterator once it returns the last entry, or
+         * otherwise by {@code release}.
+         *
+         * @return the iterator
+         */
+        Iterator<T> remaining() {
+            final int from = this.position;
+            Iterator<T> it;
+            if (this.file == null) {
+                final T[] memory = this.entries;
+                it = new Iterator<T>() {
+                    private int i = from;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.i < Run.this.length;
+                    }
+
+                    @Override
+                    public T next() {
+                        T next = memory[this.i];
+                        this.i++;
+                        return next;
+                    }
+                };
+            } else {
+                it = new Iterator<T>() {
+                    private int i = from;
+
+                    private ObjectInputStream stream = null;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.i < Run.this.length;
+                    }
+
+                    @Override
+                    public T next() {
+                        if (this.stream == null) {
+                            //open the file only once an entry is asked for
+                            this.stream = Run.this.openFile();
+                            Run.this.readers.add(this.stream);
+                            for (int j = 0; j < from; j++) {
+                                read(this.stream);
+                            }
+                        }
+                        T next = read(this.stream);
+                        this.i++;
+                        if (this.i == Run.this.length) {
+                            Run.this.readers.remove(this.stream);
+                            close(this.stream);
+                        }
+                        return next;
+                    }
+                };
+            }
+            return it;
+        }
+
+    }
+
+    /**
+     * Sorts the first {@code length} entries of {@code entries} and writes
+     * them to a new temporary file.
+     *
+     * @param <T>
+     *            type of entries
+     * @param entries
+     *            the entries
+     * @param length
+     *            the number of entries
+     * @param order
+     *            total preorder for sorting
+     * @return the run written
+     */
+    private static <T> Run<T> spill(T[] entries, int length,
+            Comparator<T> order) {
+        Arrays.sort(entries, 0, length, order);
+        try {
+            Path file = Files.createTempFile("sortingmachine", ".run");
+            file.toFile().deleteOnExit();
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file)))) {
+                for (int i = 0; i < length; i++) {
+                    out.writeObject(entries[i]);
+                    if ((i + 1) % RESET_INTERVAL == 0) {
+                        out.reset();
+                    }
+                }
+            }
+            return new Run<T>(file, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Compares the runs at indices {@code i} and {@code j} of the merge heap
+     * by their first remaining entries.
+     *
+     * @param i
+     *            one index
+     * @param j
+     *            the other index
+     * @return negative, zero, or positive as run i's head comes before, ties
+     *         with, or comes after run j's head
+     */
+    private int compareRuns(int i, int j) {
+        return this.machineOrder.compare(this.merge[i].head(),
+                this.merge[j].head());
+    }
+
+    /**
+     * Sifts the run at index {@code top} of the merge heap down to its place.
+     *
+     * @param top
+     *            the index of the run to sift down
+     * @updates $this.merge
+     * @requires <pre>
+     * 0 <= top < $this.mergeSize  and
+     * [the subtrees of the merge heap below top are heaps]
+     * </pre>
+     * @ensures [the subtree of the merge heap rooted at top is a heap]
+     */
+    private void siftDown(int top) {
+        int hole = top;
+        boolean done = false;
+        while (!done) {
+            int smallest = hole;
+            int left = 2 * hole + 1;
+            int right = left + 1;
+            if (left < this.mergeSize && this.compareRuns(left, smallest) < 0) {
+                smallest = left;
+            }
+            if (right < this.mergeSize
+                    && this.compareRuns(right, smallest) < 0) {
+                smallest = right;
+            }
+            if (smallest == hole) {
+                done = true;
+            } else {
+                Run<T> temp = this.merge[hole];
+                this.merge[hole] = this.merge[smallest];
+                this.merge[smallest] = temp;
+                hole = smallest;
+            }
+        }
+    }
+
+    /**
+     * Hands the full buffer to the fork-join pool to be sorted and written to
+     * a run, and starts a new buffer. If as many runs as there are worker
+     * threads are still being written, first waits for the oldest one.
+     *
+     * @updates $this.buffer, $this.bufferSize, $this.spills
+     * @ensures this = #this  and  $this.bufferSize = 0
+     */
+    @SuppressWarnings("unchecked")
+    private void spillBuffer() {
+        int pending = 0;
+        int oldestPending = -1;
+        for (int i = this.spills.size() - 1; i >= 0; i--) {
+            if (!this.spills.get(i).isDone()) {
+                pending++;
+                oldestPending = i;
+            }
+        }
+        if (pending >= ForkJoinPool.getCommonPoolParallelism()) {
+            this.spills.get(oldestPending).join();
+        }
+
+        final T[] entries = this.buffer;
+        final int length = this.bufferSize;
+        final Comparator<T> order = this.machineOrder;
+        this.spills.add(ForkJoinPool.commonPool()
+                .submit(() -> spill(entries, length, order)));
+
+        this.buffer = (T[]) new Serializable[this.runLength];
+        this.bufferSize = 0;
+    }
+
+    /**
+     * Deletes the files of all runs, waiting for those still being written.
+     */
+    private void releaseRuns() {
+        for (ForkJoinTask<Run<T>> spill : this.spills) {
+            spill.join().release();
+        }
+        for (int i = 0; i < this.mergeSize; i++) {
+            this.merge[i].release();
+        }
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param order
+     *            total preorder for sorting
+     * @param length
+     *            maximum number of entries in a run
+     * @requires <pre>
+     * IS_TOTAL_PREORDER([relation computed by order.compare method])  and
+     * length > 0
+     * </pre>
+     * @ensures <pre>
+     * $this.insertionMode = true  and  $this.machineOrder = order  and
+     * $this.runLength = length  and  $this.bufferSize = 0  and
+     * $this.spills = <>  and  $this.mergeSize = 0  and  $this.size = 0
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    private void createNewRep(Comparator<T> order, int length) {
+        this.insertionMode = true;
+        this.machineOrder = order;
+        this.runLength = length;
+        /*
+         * With "new T[...]" in place of "new Serializable[...]" it does not
+         * compile; as shown, it results in a warning about an unchecked cast,
+         * though it cannot fail.
+         */
+        this.buffer = (T[]) new Serializable[length];
+        this.bufferSize = 0;
+        this.spills = new ArrayList<>();
+        this.merge = new Run[0];
+        this.mergeSize = 0;
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor from order.
+     *
+     * @param order
+     *            total preorder for sorting
+     */
+    public ExternalSortingMachine(Comparator<T> order) {
+        this.createNewRep(order, DEFAULT_RUN_LENGTH);
+    }
+
+    /**
+     * Constructor from order and the maximum number of entries in a run.
+     *
+     * @param order
+     *            total preorder for sorting
+     * @param runLength
+     *            maximum number of entries in a run
+     * @requires runLength > 0
+     */
+    public ExternalSortingMachine(Comparator<T> order, int runLength) {
+        assert runLength > 0 : "Violation of: runLength > 0";
+
+        this.createNewRep(order, runLength);
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final SortingMachine<T> newInstance() {
+        try {
+            return this.getClass().getConstructor(Comparator.class, int.class)
+                    .newInstance(this.machineOrder, this.runLength);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.releaseRuns();
+        this.createNewRep(this.machineOrder, this.runLength);
+    }
+
+    @Override
+    public final void transferFrom(SortingMachine<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof ExternalSortingMachine<?> : ""
+                + "Violation of: source is of dynamic type"
+                + " ExternalSortingMachine<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * ExternalSortingMachine<?>, and the ? must be T or the call would not
+         * have compiled.
+         */
+        ExternalSortingMachine<T> localSource =
+                (ExternalSortingMachine<T>) source;
+        this.releaseRuns();
+        this.insertionMode = localSource.insertionMode;
+        this.machineOrder = localSource.machineOrder;
+        this.runLength = localSource.runLength;
+        this.buffer = localSource.buffer;
+        this.bufferSize = localSource.bufferSize;
+        this.spills = localSource.spills;
+        this.merge = localSource.merge;
+        this.mergeSize = localSource.mergeSize;
+        this.size = localSource.size;
+        localSource.createNewRep(localSource.machineOrder,
+                localSource.runLength);
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.isInInsertionMode() : "Violation of: this.insertion_mode";
+
+        if (this.bufferSize == this.runLength) {
+            this.spillBuffer();
+        }
+        this.buffer[this.bufferSize] = x;
+        this.bufferSize++;
+        this.size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final void changeToExtractionMode() {
+        assert this.isInInsertionMode() : "Violation of: this.insertion_mode";
+
+        this.insertionMode = false;
+
+        //what is left in the buffer becomes a run in memory
+        Arrays.parallelSort(this.buffer, 0, this.bufferSize,
+                this.machineOrder);
+        this.merge = new Run[this.spills.size() + 1];
+        this.mergeSize = 0;
+        for (ForkJoinTask<Run<T>> spill : this.spills) {
+            this.merge[this.mergeSize] = spill.join();
+            this.mergeSize++;
+        }
+        this.merge[this.mergeSize] = new Run<T>(this.buffer, this.bufferSize);
+        this.mergeSize++;
+        this.spills = new ArrayList<>();
+        this.buffer = (T[]) new Serializable[0];
+        this.bufferSize = 0;
+
+        //open every run, dropping the empty ones, and heapify the rest
+        int i = 0;
+        while (i < this.mergeSize) {
+            this.merge[i].open();
+            if (this.merge[i].head() == null) {
+                this.mergeSize--;
+                this.merge[i] = this.merge[this.mergeSize];
+                this.merge[this.mergeSize] = null;
+            } else {
+                i++;
+            }
+        }
+        for (int top = this.mergeSize / 2 - 1; top >= 0; top--) {
+            this.siftDown(top);
+        }
+    }
+
+    @Override
+    public final T removeFirst() {
+        assert !this
+                .isInInsertionMode() : "Violation of: not this.insertion_mode";
+        assert this.size() > 0 : "Violation of: this.contents /= {}";
+
+        Run<T> first = this.merge[0];
+        T removed = first.head();
+        first.advance();
+        if (first.head() == null) {
+            //this run is used up; replace it with the last run in the heap
+            this.mergeSize--;
+            this.merge[0] = this.merge[this.mergeSize];
+            this.merge[this.mergeSize] = null;
+        }
+        if (this.mergeSize > 0) {
+            this.siftDown(0);
+        }
+        this.size--;
+
+        return removed;
+    }
+
+    @Override
+    public final boolean isInInsertionMode() {
+        return this.insertionMode;
+    }
+
+    @Override
+    public final Comparator<T> order() {
+        return this.machineOrder;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new ExternalSortingMachineIterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for
+     * {@code ExternalSortingMachine}.
+     */
+    private final class ExternalSortingMachineIterator implements Iterator<T> {
+
+        /**
+         * Runs whose remaining entries are still to be returned.
+         */
+        private final ArrayList<Run<T>> runs;
+
+        /**
+         * Index in {@code runs} of the run being returned.
+         */
+        private int currentRun;
+
+        /**
+         * Iterator over the remaining entries of the current run.
+         */
+        private Iterator<T> runIterator;
+
+        /**
+         * Index of the next buffer entry to return, once the runs are done.
+         */
+        private int bufferIndex;
+
+        /**
+         * No-argument constructor.
+         */
+        ExternalSortingMachineIterator() {
+            ExternalSortingMachine<T> machine = ExternalSortingMachine.this;
+            this.runs = new ArrayList<>();
+            for (ForkJoinTask<Run<T>> spill : machine.spills) {
+                this.runs.add(spill.join());
+            }
+            for (int i = 0; i < machine.mergeSize; i++) {
+                this.runs.add(machine.merge[i]);
+            }
+            this.currentRun = 0;
+            this.runIterator = null;
+            this.bufferIndex = 0;
+            this.skipFinishedRuns();
+        }
+
+        /**
+         * Moves on to the first run, from the current one on, that has
+         * entries left to return.
+         */
+        private void skipFinishedRuns() {
+            while ((this.runIterator == null || !this.runIterator.hasNext())
+                    && this.currentRun < this.runs.size()) {
+                this.runIterator = this.runs.get(this.currentRun).remaining();
+                this.currentRun++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            int bufferSize = ExternalSortingMachine.this.bufferSize;
+            return (this.runIterator != null && this.runIterator.hasNext())
+                    || this.bufferIndex < bufferSize;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T next;
+            if (this.runIterator != null && this.runIterator.hasNext()) {
+                next = this.runIterator.next();
+                this.skipFinishedRuns();
+            } else {
+                next = ExternalSortingMachine.this.buffer[this.bufferIndex];
+                this.bufferIndex++;
+            }
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
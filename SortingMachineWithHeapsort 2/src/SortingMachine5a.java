@@ -1,15 +1,63 @@
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Function;
 
 import components.queue.Queue;
-import components.queue.Queue1L;
 import components.sortingmachine.SortingMachine;
 import components.sortingmachine.SortingMachineSecondary;
 
 /**
- * {@code SortingMachine} represented as a {@code Queue} and an array (using an
- * embedding of heap sort), with implementations of primary methods.
+ * {@code SortingMachine} represented as an array (using an embedding of heap
+ * sort), with implementations of primary methods.
+ *
+ * <p>
+ * In insertion mode entries are appended to the array, which doubles in size
+ * when it is full; {@code changeToExtractionMode} then turns the array into a
+ * heap in place, so no entry is copied or wrapped in a node on its way from
+ * {@code add} to {@code removeFirst}.
+ * </p>
+ *
+ * <p>
+ * Besides {@code add} in insertion mode, {@code offer} adds entries in either
+ * mode. In extraction mode the heap array grows as needed and the new entry
+ * is sifted up, so the machine can be used as a priority queue that takes
+ * new entries between calls to {@code removeFirst}, at O(log n) per call.
+ * </p>
+ *
+ * <p>
+ * The heap is {@code d}-ary, with {@code d} given to the constructor
+ * (2 by default): the children of the node at index i are at indices
+ * {@code d * i + 1} through {@code d * i + d}. A wider heap is shallower, and
+ * the children compared on each level of a sift-down are adjacent in memory,
+ * which pays off for large heaps despite the extra comparisons per level.
+ * </p>
+ *
+ * <p>
+ * A machine constructed with a bound K keeps only the K entries that come
+ * first in the order among those added in insertion mode: once K entries are
+ * held they form a heap with the last of them at the root, and each further
+ * {@code add} either replaces that root and sifts it down or is dropped. Top-K
+ * selection from n entries then takes O(K) memory and O(n log K) time.
+ * </p>
+ *
+ * <p>
+ * A machine constructed from a key extractor orders entries by their keys.
+ * {@code changeToExtractionMode} computes the key of each entry once and
+ * pairs the entry with it (and with its position in the order the entries
+ * were added), so the heap compares cached keys instead of computing two keys
+ * per comparison. If the machine is stable, entries with equal keys are
+ * removed in the order they were added.
+ * </p>
+ *
+ * <p>
+ * {@code removeFirst(k, out)} and {@code drainTo(dst, max)} remove up to
+ * {@code k} entries in order in one call, checking the convention once per
+ * batch rather than once per entry; the heap array is never reallocated while
+ * it is being drained.
+ * </p>
  *
  * @param <T>
  *            type of {@code SortingMachine} entries
@@ -25,39 +73,59 @@ import components.sortingmachine.SortingMachineSecondary;
  *   a: string of T,
  *   start: integer,
  *   stop: integer,
+ *   d: integer,
  *   r: binary relation on T
  *  ) : boolean is
- *  [the subtree of a (when a is interpreted as a complete binary tree) rooted
+ *  [the subtree of a (when a is interpreted as a complete d-ary tree) rooted
  *   at index start and only through entry stop of a satisfies the heap
  *   ordering property according to the relation r]
  *
  * SUBTREE_ARRAY_ENTRIES (
  *   a: string of T,
  *   start: integer,
- *   stop: integer
+ *   stop: integer,
+ *   d: integer
  *  ) : finite multiset of T is
  *  [the multiset of entries in a that belong to the subtree of a
- *   (when a is interpreted as a complete binary tree) rooted at
+ *   (when a is interpreted as a complete d-ary tree) rooted at
  *   index start and only through entry stop]
  * </pre>
  * @convention <pre>
  * IS_TOTAL_PREORDER([relation computed by $this.machineOrder.compare method]  and
- * if $this.insertionMode then
- *   $this.heapSize = 0
- * else
- *   $this.entries = <>  and
+ * $this.arity >= 2  and
+ * 0 <= $this.heapSize <= |$this.heap|  and
+ * for all i: integer
+ *     where (0 <= i  and  i < $this.heapSize)
+ *   ([entry at position i in $this.heap is not null])  and
+ * $this.bound > 0  and
+ * $this.evictionOrder = [reverse of $this.machineOrder]  and
+ * ($this.keyedHeap /= null  iff
+ *   ($this.keyExtractor /= null  and  not $this.insertionMode))  and
+ * if $this.keyedHeap /= null then
+ *   $this.heapSize <= |$this.keyedHeap|  and
+ *   SUBTREE_IS_HEAP($this.keyedHeap, 0, $this.heapSize - 1, $this.arity,
+ *     [relation computed by $this.keyedOrder.compare method])  and
  *   for all i: integer
- *       where (0 <= i  and  i < |$this.heap|)
- *     ([entry at position i in $this.heap is not null])  and
- *   SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,
- *     [relation computed by $this.machineOrder.compare method])  and
- *   0 <= $this.heapSize <= |$this.heap|
+ *       where (0 <= i  and  i < $this.heapSize)
+ *     ($this.keyedHeap[i].key = $this.keyExtractor($this.keyedHeap[i].entry)
+ *      and  $this.keyedHeap[i].sequence < $this.nextSequence)
+ * else if not $this.insertionMode then
+ *   SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1, $this.arity,
+ *     [relation computed by $this.machineOrder.compare method])
+ * else
+ *   $this.heapSize <= $this.bound  and
+ *   if $this.heapSize = $this.bound then
+ *     SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1, $this.arity,
+ *       [relation computed by $this.evictionOrder.compare method])
  * </pre>
  * @correspondence <pre>
- * if $this.insertionMode then
- *   this = (true, $this.machineOrder, multiset_entries($this.entries))
+ * if $this.keyedHeap /= null then
+ *   this = ($this.insertionMode, $this.machineOrder,
+ *           [multiset of the entry fields of
+ *            $this.keyedHeap[0, $this.heapSize)])
  * else
- *   this = (false, $this.machineOrder, multiset_entries($this.heap[0, $this.heapSize)))
+ *   this = ($this.insertionMode, $this.machineOrder,
+ *           multiset_entries($this.heap[0, $this.heapSize)))
  * </pre>
  *
  * @author Jared Malto and Kelvin Nguyen
@@ -69,6 +137,79 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      * Private members --------------------------------------------------------
      */
 
+    /**
+     * Entry of a keyed machine in extraction mode, paired with its sort key
+     * and with its position in the order the entries were added.
+     *
+     * @param <T>
+     *            type of the entry
+     */
+    private static final class Keyed<T> {
+
+        /**
+         * The entry.
+         */
+        private final T entry;
+
+        /**
+         * Sort key of the entry.
+         */
+        private final Object key;
+
+        /**
+         * Position of the entry in the order the entries were added.
+         */
+        private final long sequence;
+
+        /**
+         * Constructor from entry, key and sequence number.
+         *
+         * @param entry
+         *            the entry
+         * @param key
+         *            the sort key of the entry
+         * @param sequence
+         *            the position of the entry in the order of addition
+         */
+        private Keyed(T entry, Object key, long sequence) {
+            this.entry = entry;
+            this.key = key;
+            this.sequence = sequence;
+        }
+
+    }
+
+    /**
+     * Initial size of the array.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Default number of children of each node of the heap.
+     */
+    private static final int DEFAULT_ARITY = 2;
+
+    /**
+     * Bound of a machine that keeps every entry.
+     */
+    private static final int NO_BOUND = Integer.MAX_VALUE;
+
+    /**
+     * Maximum number of entries kept in insertion mode.
+     */
+    private int bound;
+
+    /**
+     * Reverse of {@code machineOrder}, ordering the heap of kept entries of a
+     * bounded machine in insertion mode.
+     */
+    private Comparator<T> evictionOrder;
+
+    /**
+     * Number of children of each node of the heap.
+     */
+    private int arity;
+
     /**
      * Order.
      */
@@ -79,11 +220,6 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      */
     private boolean insertionMode;
 
-    /**
-     * Entries.
-     */
-    private Queue<T> entries;
-
     /**
      * Heap.
      */
@@ -95,226 +231,321 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
     private int heapSize;
 
     /**
-     * Exchanges entries at indices {@code i} and {@code j} of {@code array}.
-     *
-     * @param <T>
-     *            type of array entries
-     * @param array
-     *            the array whose entries are to be exchanged
-     * @param i
-     *            one index
-     * @param j
-     *            the other index
-     * @updates array
-     * @requires 0 <= i < |array| and 0 <= j < |array|
-     * @ensures array = [#array with entries at indices i and j exchanged]
+     * Sort-key extractor of a keyed machine; null if entries are compared
+     * with {@code machineOrder} directly.
      */
-    private static <T> void exchangeEntries(T[] array, int i, int j) {
-        assert array != null : "Violation of: array is not null";
-        assert 0 <= i : "Violation of: 0 <= i";
-        assert i < array.length : "Violation of: i < |array|";
-        assert 0 <= j : "Violation of: 0 <= j";
-        assert j < array.length : "Violation of: j < |array|";
+    private Function<? super T, ?> keyExtractor;
 
-        T temp = array[i];
-        array[i] = array[j];
-        array[j] = temp;
+    /**
+     * Order on the keys computed by {@code keyExtractor}.
+     */
+    private Comparator<Object> keyOrder;
 
-    }
+    /**
+     * Whether a keyed machine breaks ties between keys by order of addition.
+     */
+    private boolean stable;
+
+    /**
+     * Order on keyed entries: by cached key and then, if {@code stable}, by
+     * sequence number.
+     */
+    private Comparator<Keyed<T>> keyedOrder;
 
     /**
-     * Given an array that represents a complete binary tree and an index
-     * referring to the root of a subtree that would be a heap except for its
-     * root, sifts the root down to turn that whole subtree into a heap.
+     * Heap of keyed entries of a keyed machine in extraction mode; null
+     * otherwise.
+     */
+    private Keyed<T>[] keyedHeap;
+
+    /**
+     * Sequence number of the next entry given to a keyed machine in
+     * extraction mode.
+     */
+    private long nextSequence;
+
+    /**
+     * Given an array that represents a complete {@code d}-ary tree and an
+     * index referring to the root of a subtree that would be a heap except for
+     * its root, sifts the root down to turn that whole subtree into a heap.
+     *
+     * <p>
+     * Rather than exchanging the root with a child on every level, the root is
+     * taken out, leaving a hole, and the hole is walked down to a leaf by
+     * moving the smallest child up on each level ({@code d - 1} comparisons
+     * per level, over {@code d} adjacent entries of the array). The root is
+     * then moved back up along that path to where it belongs, which is usually
+     * only a level or two, since the root of a heap being rebuilt is typically
+     * one of its largest entries.
+     * </p>
      *
      * @param <T>
      *            type of array entries
      * @param array
-     *            the complete binary tree
+     *            the complete d-ary tree
      * @param top
      *            the index of the root of the "subtree"
      * @param last
      *            the index of the last entry in the heap
+     * @param d
+     *            the number of children of each node
      * @param order
      *            total preorder for sorting
      * @updates array
      * @requires <pre>
-     * 0 <= top  and  last < |array|  and
+     * 0 <= top  and  last < |array|  and  d >= 2  and
      * for all i: integer
-     *     where (0 <= i  and  i < |array|)
+     *     where (0 <= i  and  i <= last)
      *   ([entry at position i in array is not null])  and
-     * [subtree rooted at {@code top} is a complete binary tree]  and
-     * SUBTREE_IS_HEAP(array, 2 * top + 1, last,
-     *     [relation computed by order.compare method])  and
-     * SUBTREE_IS_HEAP(array, 2 * top + 2, last,
-     *     [relation computed by order.compare method])  and
+     * [subtree rooted at {@code top} is a complete d-ary tree]  and
+     * for all c: integer
+     *     where (d * top + 1 <= c  and  c <= d * top + d)
+     *   (SUBTREE_IS_HEAP(array, c, last, d,
+     *      [relation computed by order.compare method]))  and
      * IS_TOTAL_PREORDER([relation computed by order.compare method])
      * </pre>
      * @ensures <pre>
-     * SUBTREE_IS_HEAP(array, top, last,
+     * SUBTREE_IS_HEAP(array, top, last, d,
      *     [relation computed by order.compare method])  and
      * perms(array, #array)  and
-     * SUBTREE_ARRAY_ENTRIES(array, top, last) =
-     *  SUBTREE_ARRAY_ENTRIES(#array, top, last)  and
+     * SUBTREE_ARRAY_ENTRIES(array, top, last, d) =
+     *  SUBTREE_ARRAY_ENTRIES(#array, top, last, d)  and
      * [the other entries in array are the same as in #array]
      * </pre>
      */
-    private static <T> void siftDown(T[] array, int top, int last,
+    private static <T> void siftDown(T[] array, int top, int last, int d,
             Comparator<T> order) {
         assert array != null : "Violation of: array is not null";
         assert order != null : "Violation of: order is not null";
         assert 0 <= top : "Violation of: 0 <= top";
         assert last < array.length : "Violation of: last < |array|";
-        for (int i = 0; i < array.length; i++) {
+        assert d >= 2 : "Violation of: d >= 2";
+        for (int i = 0; i <= last; i++) {
             assert array[i] != null : ""
                     + "Violation of: all entries in array are not null";
         }
-        assert isHeap(array, 2 * top + 1, last, order) : ""
-                + "Violation of: SUBTREE_IS_HEAP(array, 2 * top + 1, last,"
-                + " [relation computed by order.compare method])";
-        assert isHeap(array, 2 * top + 2, last, order) : ""
-                + "Violation of: SUBTREE_IS_HEAP(array, 2 * top + 2, last,"
-                + " [relation computed by order.compare method])";
+        for (int c = d * top + 1; c <= d * top + d; c++) {
+            assert isHeap(array, c, last, d, order) : ""
+                    + "Violation of: SUBTREE_IS_HEAP(array, c, last, d,"
+                    + " [relation computed by order.compare method])";
+        }
         /*
          * Impractical to check last requires clause; no need to check the other
          * requires clause, because it must be true when using the array
-         * representation for a complete binary tree.
+         * representation for a complete d-ary tree.
          */
 
-        // *** you must use the recursive algorithm discussed in class ***
-
-        //Index for left and right children
-        int left = top * 2 + 1;
-        int right = top * 2 + 2;
+        siftDownUnchecked(array, top, last, d, order);
+    }
 
-        //Check if there is only one child.
-        T root = array[top];
-        if (left <= last) {
-            //Checks if root is greater than child
-            if (order.compare(root, array[left]) > 0) {
-                //if yes, swaps root and child
-                exchangeEntries(array, top, left);
-            }
-        }
+    /**
+     * Does the same as {@code siftDown}, with the same contract, but without
+     * checking its preconditions, which takes time proportional to the size
+     * of the heap. Used by {@code removeRoot}, whose callers check the heap
+     * once after a whole batch of removals instead.
+     *
+     * @param <T>
+     *            type of array entries
+     * @param array
+     *            the complete d-ary tree
+     * @param top
+     *            the index of the root of the "subtree"
+     * @param last
+     *            the index of the last entry in the heap
+     * @param d
+     *            the number of children of each node
+     * @param order
+     *            total preorder for sorting
+     * @updates array
+     * @requires [as for siftDown]
+     * @ensures [as for siftDown]
+     */
+    private static <T> void siftDownUnchecked(T[] array, int top, int last,
+            int d, Comparator<T> order) {
+        if (top < last) {
+            T root = array[top];
+            int hole = top;
+            /*
+             * a node has children iff it is at or before lastParent; testing
+             * that rather than d * hole + 1 <= last avoids overflow
+             */
+            int lastParent = (last - 1) / d;
 
-        //Check if root has children
-        if (right <= last) {
-            //Checks which is smaller between the left and right children
-            int smallest = left;
-            if (order.compare(array[left], array[right]) >= 0) {
-                smallest = right;
+            //walk the hole down to a leaf, moving the smallest child up
+            while (hole <= lastParent) {
+                int first = d * hole + 1;
+                int child = first;
+                int end = Math.min(last - first, d - 1) + first;
+                for (int c = first + 1; c <= end; c++) {
+                    if (order.compare(array[c], array[child]) < 0) {
+                        child = c;
+                    }
+                }
+                array[hole] = array[child];
+                hole = child;
             }
 
-            //Checks if root is greater then the smallest child
-            if (order.compare(root, array[smallest]) > 0) {
-                //if yes, swap root with child and siftDown again
-                exchangeEntries(array, top, smallest);
-                siftDown(array, smallest, last, order);
+            //move the old root back up the path to where it belongs
+            int parent = (hole - 1) / d;
+            while (hole > top && order.compare(root, array[parent]) < 0) {
+                array[hole] = array[parent];
+                hole = parent;
+                parent = (hole - 1) / d;
             }
+            array[hole] = root;
         }
     }
 
     /**
-     * Heapifies the subtree of the given array rooted at the given {@code top}.
+     * Given an array whose first {@code bottom} entries form a {@code d}-ary
+     * heap, sifts the entry at index {@code bottom} up to turn the first
+     * {@code bottom + 1} entries into a heap. The entry is taken out, leaving a
+     * hole, and each ancestor larger than it is moved down into the hole in
+     * turn.
      *
      * @param <T>
      *            type of array entries
      * @param array
-     *            the complete binary tree
-     * @param top
-     *            the index of the root of the "subtree" to heapify
+     *            the complete d-ary tree
+     * @param bottom
+     *            the index of the entry to sift up
+     * @param d
+     *            the number of children of each node
      * @param order
-     *            the total preorder for sorting
+     *            total preorder for sorting
      * @updates array
      * @requires <pre>
-     * 0 <= top  and
+     * 0 <= bottom < |array|  and  d >= 2  and
      * for all i: integer
-     *     where (0 <= i  and  i < |array|)
+     *     where (0 <= i  and  i <= bottom)
      *   ([entry at position i in array is not null])  and
-     * [subtree rooted at {@code top} is a complete binary tree]  and
+     * SUBTREE_IS_HEAP(array, 0, bottom - 1, d,
+     *     [relation computed by order.compare method])  and
      * IS_TOTAL_PREORDER([relation computed by order.compare method])
      * </pre>
      * @ensures <pre>
-     * SUBTREE_IS_HEAP(array, top, |array| - 1,
+     * SUBTREE_IS_HEAP(array, 0, bottom, d,
      *     [relation computed by order.compare method])  and
-     * perms(array, #array)
+     * perms(array, #array)  and
+     * [the entries of array after bottom are the same as in #array]
      * </pre>
      */
-    private static <T> void heapify(T[] array, int top, Comparator<T> order) {
+    private static <T> void siftUp(T[] array, int bottom, int d,
+            Comparator<T> order) {
         assert array != null : "Violation of: array is not null";
         assert order != null : "Violation of: order is not null";
-        assert 0 <= top : "Violation of: 0 <= top";
-        for (int i = 0; i < array.length; i++) {
-            assert array[i] != null : ""
-                    + "Violation of: all entries in array are not null";
-        }
-        /*
-         * Impractical to check last requires clause; no need to check the other
-         * requires clause, because it must be true when using the array
-         * representation for a complete binary tree.
-         */
+        assert 0 <= bottom : "Violation of: 0 <= bottom";
+        assert bottom < array.length : "Violation of: bottom < |array|";
+        assert d >= 2 : "Violation of: d >= 2";
+        assert array[bottom] != null : ""
+                + "Violation of: all entries in array are not null";
+        assert isHeap(array, 0, bottom - 1, d, order) : ""
+                + "Violation of: SUBTREE_IS_HEAP(array, 0, bottom - 1, d,"
+                + " [relation computed by order.compare method])";
 
-        //left nodes are odd and right nodes are even
-        int left = 2 * top + 1;
-        int right = 2 * top + 2;
-        /*
-         * only need to do anything if the top node is not the only node and if
-         * top is less than the length
-         *
-         */
-        if (top < array.length) {
-            //heapify left and right recursively
-            heapify(array, left, order);
-            heapify(array, right, order);
-            //sift down with an array length of length - 1
-            siftDown(array, top, array.length - 1, order);
+        T x = array[bottom];
+        int hole = bottom;
+        int parent = (hole - 1) / d;
+        while (hole > 0 && order.compare(x, array[parent]) < 0) {
+            array[hole] = array[parent];
+            hole = parent;
+            parent = (hole - 1) / d;
         }
+        array[hole] = x;
+    }
 
+    /**
+     * Removes and returns the root of the {@code d}-ary heap
+     * {@code array[0, last]}: the last entry is moved to the root, its old
+     * slot is cleared, and it is sifted down. The heap is not checked, so
+     * removing an entry takes O(log size) time even with assertion checking
+     * on; callers check the heap afterwards.
+     *
+     * @param <T>
+     *            type of array entries
+     * @param array
+     *            the heap
+     * @param last
+     *            the index of the last entry in the heap
+     * @param d
+     *            the number of children of each node
+     * @param order
+     *            total preorder for sorting
+     * @return the root of the heap
+     * @updates array
+     * @requires <pre>
+     * 0 <= last < |array|  and  d >= 2  and
+     * SUBTREE_IS_HEAP(array, 0, last, d,
+     *     [relation computed by order.compare method])
+     * </pre>
+     * @ensures <pre>
+     * removeRoot = #array[0]  and
+     * SUBTREE_IS_HEAP(array, 0, last - 1, d,
+     *     [relation computed by order.compare method])  and
+     * SUBTREE_ARRAY_ENTRIES(array, 0, last - 1, d) =
+     *  SUBTREE_ARRAY_ENTRIES(#array, 0, last, d) \ {#array[0]}  and
+     * array[last] = null
+     * </pre>
+     */
+    private static <T> T removeRoot(T[] array, int last, int d,
+            Comparator<T> order) {
+        T root = array[0];
+        array[0] = array[last];
+        array[last] = null;
+        siftDownUnchecked(array, 0, last - 1, d, order);
+        return root;
     }
 
     /**
-     * Constructs and returns an array representing a heap with the entries from
-     * the given {@code Queue}.
+     * Heapifies the first {@code length} entries of the given array as a
+     * {@code d}-ary heap, bottom up: every subtree rooted at a node with
+     * children is sifted down, from the last such node back to the root, so
+     * that the subtrees of a node are already heaps when it is sifted down
+     * (Floyd's method, which uses a linear number of comparisons).
      *
      * @param <T>
-     *            type of {@code Queue} and array entries
-     * @param q
-     *            the {@code Queue} with the entries for the heap
+     *            type of array entries
+     * @param array
+     *            the complete d-ary tree
+     * @param length
+     *            the number of entries to heapify
+     * @param d
+     *            the number of children of each node
      * @param order
      *            the total preorder for sorting
-     * @return the array representation of a heap
-     * @clears q
-     * @requires IS_TOTAL_PREORDER([relation computed by order.compare method])
-     * @ensures <pre>
-     * SUBTREE_IS_HEAP(buildHeap, 0, |buildHeap| - 1)  and
-     * perms(buildHeap, #q)  and
+     * @updates array
+     * @requires <pre>
+     * 0 <= length <= |array|  and  d >= 2  and
      * for all i: integer
-     *     where (0 <= i  and  i < |buildHeap|)
-     *   ([entry at position i in buildHeap is not null])  and
+     *     where (0 <= i  and  i < length)
+     *   ([entry at position i in array is not null])  and
+     * IS_TOTAL_PREORDER([relation computed by order.compare method])
+     * </pre>
+     * @ensures <pre>
+     * SUBTREE_IS_HEAP(array, 0, length - 1, d,
+     *     [relation computed by order.compare method])  and
+     * perms(array, #array)  and
+     * [the entries of array at or after length are the same as in #array]
      * </pre>
      */
-    @SuppressWarnings("unchecked")
-    private static <T> T[] buildHeap(Queue<T> q, Comparator<T> order) {
-        assert q != null : "Violation of: q is not null";
+    private static <T> void heapify(T[] array, int length, int d,
+            Comparator<T> order) {
+        assert array != null : "Violation of: array is not null";
         assert order != null : "Violation of: order is not null";
+        assert 0 <= length : "Violation of: 0 <= length";
+        assert length <= array.length : "Violation of: length <= |array|";
+        assert d >= 2 : "Violation of: d >= 2";
         /*
-         * Impractical to check the requires clause.
+         * Impractical to check the other requires clauses.
          */
-        /*
-         * With "new T[...]" in place of "new Object[...]" it does not compile;
-         * as shown, it results in a warning about an unchecked cast, though it
-         * cannot fail.
-         */
-        T[] heap = (T[]) (new Object[q.length()]);
 
-        //iterates through the length of the queue
-        for (int i = 0; q.length() > 0; i++) {
-            //Set each index in heap to entry in queue
-            heap[i] = q.dequeue();
+        //the last node with children is the parent of the last node
+        if (length > 1) {
+            for (int top = (length - 2) / d; top >= 0; top--) {
+                siftDown(array, top, length - 1, d, order);
+            }
         }
-        heapify(heap, 0, order);
 
-        return heap;
     }
 
     /**
@@ -324,50 +555,50 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      * @param <T>
      *            type of array entries
      * @param array
-     *            the complete binary tree
+     *            the complete d-ary tree
      * @param top
      *            the index of the root of the "subtree"
      * @param last
      *            the index of the last entry in the heap
+     * @param d
+     *            the number of children of each node
      * @param order
      *            total preorder for sorting
      * @return true if the subtree of the given {@code array} rooted at the
      *         given {@code top} is a heap; false otherwise
      * @requires <pre>
-     * 0 <= top  and  last < |array|  and
+     * 0 <= top  and  last < |array|  and  d >= 2  and
      * for all i: integer
-     *     where (0 <= i  and  i < |array|)
+     *     where (0 <= i  and  i <= last)
      *   ([entry at position i in array is not null])  and
-     * [subtree rooted at {@code top} is a complete binary tree]
+     * [subtree rooted at {@code top} is a complete d-ary tree]
      * </pre>
      * @ensures <pre>
-     * isHeap = SUBTREE_IS_HEAP(array, top, last,
+     * isHeap = SUBTREE_IS_HEAP(array, top, last, d,
      *     [relation computed by order.compare method])
      * </pre>
      */
-    private static <T> boolean isHeap(T[] array, int top, int last,
+    private static <T> boolean isHeap(T[] array, int top, int last, int d,
             Comparator<T> order) {
         assert array != null : "Violation of: array is not null";
         assert 0 <= top : "Violation of: 0 <= top";
         assert last < array.length : "Violation of: last < |array|";
-        for (int i = 0; i < array.length; i++) {
+        assert d >= 2 : "Violation of: d >= 2";
+        for (int i = 0; i <= last; i++) {
             assert array[i] != null : ""
                     + "Violation of: all entries in array are not null";
         }
         /*
          * No need to check the other requires clause, because it must be true
-         * when using the Array representation for a complete binary tree.
+         * when using the Array representation for a complete d-ary tree.
          */
-        int left = 2 * top + 1;
         boolean isHeap = true;
-        if (left <= last) {
-            isHeap = (order.compare(array[top], array[left]) <= 0)
-                    && isHeap(array, left, last, order);
-            int right = left + 1;
-            if (isHeap && (right <= last)) {
-                isHeap = (order.compare(array[top], array[right]) <= 0)
-                        && isHeap(array, right, last, order);
-            }
+        int child = d * top + 1;
+        int end = Math.min(d * top + d, last);
+        while (isHeap && child <= end) {
+            isHeap = (order.compare(array[top], array[child]) <= 0)
+                    && isHeap(array, child, last, d, order);
+            child++;
         }
         return isHeap;
     }
@@ -379,45 +610,158 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      * @return true if the convention holds (or if assertion checking is off);
      *         otherwise reports a violated assertion
      * @convention <pre>
-     * if $this.insertionMode then
-     *   $this.heapSize = 0
+     * $this.arity >= 2  and
+     * 0 <= $this.heapSize <= |$this.heap|  and
+     * for all i: integer
+     *     where (0 <= i  and  i < $this.heapSize)
+     *   ([entry at position i in $this.heap is not null])  and
+     * if not $this.insertionMode then
+     *   SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1, $this.arity,
+     *     [relation computed by $this.machineOrder.compare method])
      * else
-     *   $this.entries = <>  and
-     *   for all i: integer
-     *       where (0 <= i  and  i < |$this.heap|)
-     *     ([entry at position i in $this.heap is not null])  and
-     *   SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,
-     *     [relation computed by $this.machineOrder.compare method])  and
-     *   0 <= $this.heapSize <= |$this.heap|
+     *   $this.heapSize <= $this.bound  and
+     *   if $this.heapSize = $this.bound then
+     *     SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1, $this.arity,
+     *       [relation computed by $this.evictionOrder.compare method])  and
+     * ($this.keyedHeap /= null  iff
+     *   ($this.keyExtractor /= null  and  not $this.insertionMode))  and
+     * if $this.keyedHeap /= null then
+     *   $this.heapSize <= |$this.keyedHeap|  and
+     *   SUBTREE_IS_HEAP($this.keyedHeap, 0, $this.heapSize - 1, $this.arity,
+     *     [relation computed by $this.keyedOrder.compare method])
      * </pre>
      */
     private boolean conventionHolds() {
-        if (this.insertionMode) {
-            assert this.heapSize == 0 : ""
-                    + "Violation of: if $this.insertionMode then $this.heapSize = 0";
+        assert this.arity >= 2 : "Violation of: $this.arity >= 2";
+        assert 0 <= this.heapSize : "Violation of: 0 <= $this.heapSize";
+        assert (this.keyedHeap != null) == (this.keyExtractor != null
+                && !this.insertionMode) : ""
+                        + "Violation of: $this.keyedHeap /= null iff"
+                        + " ($this.keyExtractor /= null and"
+                        + " not $this.insertionMode)";
+        if (this.keyedHeap != null) {
+            assert this.heapSize <= this.keyedHeap.length : ""
+                    + "Violation of: $this.heapSize <= |$this.keyedHeap|";
+            assert isHeap(this.keyedHeap, 0, this.heapSize - 1, this.arity,
+                    this.keyedOrder) : ""
+                            + "Violation of: SUBTREE_IS_HEAP($this.keyedHeap,"
+                            + " 0, $this.heapSize - 1, $this.arity,"
+                            + " [relation computed by $this.keyedOrder.compare"
+                            + " method])";
         } else {
-            assert this.entries.length() == 0 : ""
-                    + "Violation of: if not $this.insertionMode then $this.entries = <>";
-            assert 0 <= this.heapSize : ""
-                    + "Violation of: if not $this.insertionMode then 0 <= $this.heapSize";
             assert this.heapSize <= this.heap.length : ""
-                    + "Violation of: if not $this.insertionMode then"
-                    + " $this.heapSize <= |$this.heap|";
-            for (int i = 0; i < this.heap.length; i++) {
-                assert this.heap[i] != null : ""
-                        + "Violation of: if not $this.insertionMode then"
-                        + " all entries in $this.heap are not null";
+                    + "Violation of: $this.heapSize <= |$this.heap|";
+            for (int i = 0; i < this.heapSize; i++) {
+                assert this.heap[i] != null : "Violation of: all entries"
+                        + " in $this.heap are not null";
+            }
+            if (!this.insertionMode) {
+                assert isHeap(this.heap, 0, this.heapSize - 1, this.arity,
+                        this.machineOrder) : ""
+                                + "Violation of: if not $this.insertionMode"
+                                + " then SUBTREE_IS_HEAP($this.heap, 0,"
+                                + " $this.heapSize - 1, $this.arity,"
+                                + " [relation computed by"
+                                + " $this.machineOrder.compare method])";
+            } else {
+                assert this.heapSize <= this.bound : ""
+                        + "Violation of: if $this.insertionMode then"
+                        + " $this.heapSize <= $this.bound";
+                assert this.heapSize < this.bound
+                        || isHeap(this.heap, 0, this.heapSize - 1, this.arity,
+                                this.evictionOrder) : ""
+                                        + "Violation of: if $this.heapSize ="
+                                        + " $this.bound then"
+                                        + " SUBTREE_IS_HEAP(...,"
+                                        + " $this.evictionOrder)";
             }
-            assert isHeap(this.heap, 0, this.heapSize - 1,
-                    this.machineOrder) : ""
-                            + "Violation of: if not $this.insertionMode then"
-                            + " SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,"
-                            + " [relation computed by $this.machineOrder.compare"
-                            + " method])";
         }
         return true;
     }
 
+    /**
+     * Appends {@code x} to the entries of {@code $this.heap}, doubling the
+     * array first if it is full; in insertion mode the array never grows
+     * past {@code $this.bound}.
+     *
+     * @param x
+     *            the entry to append
+     * @updates $this.heap, $this.heapSize
+     * @requires not $this.insertionMode  or  $this.heapSize < $this.bound
+     * @ensures <pre>
+     * $this.heap[0, $this.heapSize) = #$this.heap[0, #$this.heapSize) * <x>
+     * </pre>
+     */
+    private void append(T x) {
+        if (this.heapSize == this.heap.length) {
+            int length = 2 * this.heap.length + 1;
+            if (this.insertionMode) {
+                length = Math.min(length, this.bound);
+            }
+            this.heap = Arrays.copyOf(this.heap, length);
+        }
+        this.heap[this.heapSize] = x;
+        this.heapSize++;
+    }
+
+    /**
+     * Adds {@code x} in insertion mode, keeping only the {@code $this.bound}
+     * entries that come first in the order.
+     *
+     * @param x
+     *            the entry to add
+     * @updates $this.heap, $this.heapSize
+     * @requires $this.insertionMode
+     * @ensures <pre>
+     * [multiset_entries($this.heap[0, $this.heapSize)) is the first
+     *  min($this.bound, |#contents| + 1) entries, in the order, of
+     *  multiset_entries(#$this.heap[0, #$this.heapSize)) union {x}]
+     * </pre>
+     */
+    private void insert(T x) {
+        if (this.heapSize < this.bound) {
+            this.append(x);
+            if (this.heapSize == this.bound) {
+                //from now on the last entry kept must be easy to find
+                heapify(this.heap, this.heapSize, this.arity,
+                        this.evictionOrder);
+            }
+        } else if (this.machineOrder.compare(x, this.heap[0]) < 0) {
+            //x comes before the last entry kept, which it evicts
+            this.heap[0] = x;
+            siftDown(this.heap, 0, this.heapSize - 1, this.arity,
+                    this.evictionOrder);
+        }
+    }
+
+    /**
+     * Removes and returns the root of the heap without checking the
+     * convention or the heap, so that a batch of removals can check them once
+     * at the end.
+     *
+     * @return the entry removed
+     * @updates $this.heap, $this.keyedHeap, $this.heapSize
+     * @requires not $this.insertionMode  and  $this.heapSize > 0
+     * @ensures <pre>
+     * pollRoot is in #this.contents  and
+     * this.contents = #this.contents \ {pollRoot}  and
+     * for all x: T where (x is in this.contents)
+     *   ([relation computed by $this.machineOrder.compare method](pollRoot, x))
+     * </pre>
+     */
+    private T pollRoot() {
+        this.heapSize--;
+        T removed;
+        if (this.keyedHeap != null) {
+            removed = removeRoot(this.keyedHeap, this.heapSize, this.arity,
+                    this.keyedOrder).entry;
+        } else {
+            removed = removeRoot(this.heap, this.heapSize, this.arity,
+                    this.machineOrder);
+        }
+        return removed;
+    }
+
     /**
      * Creator of initial representation.
      *
@@ -427,16 +771,26 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      * @ensures <pre>
      * $this.insertionMode = true  and
      * $this.machineOrder = order  and
-     * $this.entries = <>  and
+     * |$this.heap| = min(INITIAL_CAPACITY, $this.bound)  and
      * $this.heapSize = 0
      * </pre>
      */
+    @SuppressWarnings("unchecked")
     private void createNewRep(Comparator<T> order) {
 
         this.insertionMode = true;
         this.machineOrder = order;
-        this.entries = new Queue1L<>();
+        this.evictionOrder = Collections.reverseOrder(order);
+        /*
+         * With "new T[...]" in place of "new Object[...]" it does not compile;
+         * as shown, it results in a warning about an unchecked cast, though it
+         * cannot fail.
+         */
+        this.heap = (T[]) (new Object[Math.min(INITIAL_CAPACITY,
+                this.bound)]);
         this.heapSize = 0;
+        this.keyedHeap = null;
+        this.nextSequence = 0;
 
     }
 
@@ -451,10 +805,109 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      *            total preorder for sorting
      */
     public SortingMachine5a(Comparator<T> order) {
+        this.arity = DEFAULT_ARITY;
+        this.bound = NO_BOUND;
+        this.createNewRep(order);
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Constructor from order and the number of children of each node of the
+     * heap.
+     *
+     * @param order
+     *            total preorder for sorting
+     * @param arity
+     *            number of children of each node of the heap
+     * @requires arity >= 2
+     */
+    public SortingMachine5a(Comparator<T> order, int arity) {
+        assert arity >= 2 : "Violation of: arity >= 2";
+
+        this.arity = arity;
+        this.bound = NO_BOUND;
+        this.createNewRep(order);
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Constructor from order, the number of children of each node of the heap,
+     * and the number of entries to keep. The resulting machine only keeps the
+     * {@code bound} entries that come first in the order among those added in
+     * insertion mode: once it holds {@code bound} entries, {@code add(x)}
+     * replaces the last of them with {@code x} if {@code x} comes before it,
+     * and otherwise drops {@code x}.
+     *
+     * @param order
+     *            total preorder for sorting
+     * @param arity
+     *            number of children of each node of the heap
+     * @param bound
+     *            maximum number of entries kept in insertion mode
+     * @requires arity >= 2  and  bound > 0
+     */
+    public SortingMachine5a(Comparator<T> order, int arity, int bound) {
+        assert arity >= 2 : "Violation of: arity >= 2";
+        assert bound > 0 : "Violation of: bound > 0";
+
+        this.arity = arity;
+        this.bound = bound;
         this.createNewRep(order);
         assert this.conventionHolds();
     }
 
+    /**
+     * Constructor from key extractor and order on keys. The resulting machine
+     * orders entries by their keys, computing the key of each entry once in
+     * {@code changeToExtractionMode} (or in {@code offer}, in extraction mode)
+     * and comparing the cached keys from then on. If {@code stable}, entries
+     * with equal keys are removed in the order they were added.
+     *
+     * @param <K>
+     *            type of sort keys
+     * @param key
+     *            the key extractor
+     * @param keyOrder
+     *            total preorder on keys
+     * @param stable
+     *            whether ties between keys are broken by order of addition
+     * @requires <pre>
+     * [key is a function that does not use this]  and
+     * IS_TOTAL_PREORDER([relation computed by keyOrder.compare method])
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    public <K> SortingMachine5a(Function<? super T, ? extends K> key,
+            Comparator<? super K> keyOrder, boolean stable) {
+        assert key != null : "Violation of: key is not null";
+        assert keyOrder != null : "Violation of: keyOrder is not null";
+
+        this.arity = DEFAULT_ARITY;
+        this.bound = NO_BOUND;
+        this.keyExtractor = key;
+        /*
+         * This cast cannot fail at run time because of erasure, and keyOrder
+         * is only ever given keys computed by key
+         */
+        Comparator<Object> byKey = (Comparator<Object>) keyOrder;
+        this.keyOrder = byKey;
+        this.stable = stable;
+        if (stable) {
+            this.keyedOrder = (x, y) -> {
+                int c = byKey.compare(x.key, y.key);
+                if (c == 0) {
+                    c = Long.compare(x.sequence, y.sequence);
+                }
+                return c;
+            };
+        } else {
+            this.keyedOrder = (x, y) -> byKey.compare(x.key, y.key);
+        }
+        this.createNewRep(
+                (x, y) -> keyOrder.compare(key.apply(x), key.apply(y)));
+        assert this.conventionHolds();
+    }
+
     /*
      * Standard methods -------------------------------------------------------
      */
@@ -463,8 +916,19 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
     @Override
     public final SortingMachine<T> newInstance() {
         try {
-            return this.getClass().getConstructor(Comparator.class)
-                    .newInstance(this.machineOrder);
+            SortingMachine<T> result;
+            if (this.keyExtractor != null) {
+                result = this.getClass()
+                        .getConstructor(Function.class, Comparator.class,
+                                boolean.class)
+                        .newInstance(this.keyExtractor, this.keyOrder,
+                                this.stable);
+            } else {
+                result = this.getClass()
+                        .getConstructor(Comparator.class, int.class, int.class)
+                        .newInstance(this.machineOrder, this.arity, this.bound);
+            }
+            return result;
         } catch (ReflectiveOperationException e) {
             throw new AssertionError(
                     "Cannot construct object of type " + this.getClass());
@@ -492,9 +956,17 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
         SortingMachine5a<T> localSource = (SortingMachine5a<T>) source;
         this.insertionMode = localSource.insertionMode;
         this.machineOrder = localSource.machineOrder;
-        this.entries = localSource.entries;
+        this.arity = localSource.arity;
+        this.bound = localSource.bound;
+        this.evictionOrder = localSource.evictionOrder;
         this.heap = localSource.heap;
         this.heapSize = localSource.heapSize;
+        this.keyExtractor = localSource.keyExtractor;
+        this.keyOrder = localSource.keyOrder;
+        this.stable = localSource.stable;
+        this.keyedOrder = localSource.keyedOrder;
+        this.keyedHeap = localSource.keyedHeap;
+        this.nextSequence = localSource.nextSequence;
         localSource.createNewRep(localSource.machineOrder);
         assert this.conventionHolds();
         assert localSource.conventionHolds();
@@ -509,7 +981,7 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
         assert x != null : "Violation of: x is not null";
         assert this.isInInsertionMode() : "Violation of: this.insertion_mode";
 
-        this.entries.enqueue(x);
+        this.insert(x);
 
         assert this.conventionHolds();
     }
@@ -519,8 +991,23 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
         assert this.isInInsertionMode() : "Violation of: this.insertion_mode";
 
         this.insertionMode = false;
-        this.heap = buildHeap(this.entries, this.machineOrder);
-        this.heapSize = this.heap.length;
+        if (this.keyExtractor != null) {
+            //compute each key once; the sequence is the order of addition
+            @SuppressWarnings("unchecked")
+            Keyed<T>[] keyed = (Keyed<T>[]) new Keyed<?>[this.heap.length];
+            for (int i = 0; i < this.heapSize; i++) {
+                keyed[i] = new Keyed<>(this.heap[i],
+                        this.keyExtractor.apply(this.heap[i]), i);
+            }
+            this.nextSequence = this.heapSize;
+            this.heap = null;
+            this.keyedHeap = keyed;
+            heapify(this.keyedHeap, this.heapSize, this.arity,
+                    this.keyedOrder);
+        } else {
+            //the entries are already in the array; heapify them where they are
+            heapify(this.heap, this.heapSize, this.arity, this.machineOrder);
+        }
 
         assert this.conventionHolds();
     }
@@ -531,17 +1018,8 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
                 .isInInsertionMode() : "Violation of: not this.insertion_mode";
         assert this.size() > 0 : "Violation of: this.contents /= {}";
 
-        //access the first element in the heap array
-        T removed = this.heap[0];
-
-        //if the heap is larger than 1, replace the bottom node with the top
-        if (this.heap.length > 1) {
-            exchangeEntries(this.heap, 0, this.heap.length - 1);
-        }
-        this.heapSize--;
-
-        //sift down out of place elements
-        siftDown(this.heap, 0, this.heapSize - 1, this.machineOrder);
+        //take the root, and move the last entry of the heap in its place
+        T removed = this.pollRoot();
 
         assert this.conventionHolds();
 
@@ -564,14 +1042,7 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
     public final int size() {
 
         assert this.conventionHolds();
-        // Fix this line to return the result after checking the convention.
-        int size = 0;
-        if (this.insertionMode) {
-            size = this.entries.length();
-        } else {
-            size = this.heapSize;
-        }
-        return size;
+        return this.heapSize;
     }
 
     @Override
@@ -579,6 +1050,123 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
         return new SortingMachine5aIterator();
     }
 
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Adds {@code x} to the contents of {@code this}, in either mode. In
+     * insertion mode this is the same as {@code add}, bound included; in
+     * extraction mode {@code x} becomes available to later calls to
+     * {@code removeFirst}, whatever the bound.
+     *
+     * @param x
+     *            the element to be added
+     * @aliases reference x
+     * @updates this.contents
+     * @ensures <pre>
+     * if #this.insertion_mode then
+     *   [this.contents is the first min($this.bound, |#this.contents| + 1)
+     *    entries, in the order, of #this.contents union {x}]
+     * else
+     *   this.contents = #this.contents union {x}
+     * </pre>
+     */
+    public final void offer(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        if (this.insertionMode) {
+            this.insert(x);
+        } else if (this.keyedHeap != null) {
+            if (this.heapSize == this.keyedHeap.length) {
+                this.keyedHeap = Arrays.copyOf(this.keyedHeap,
+                        2 * this.keyedHeap.length + 1);
+            }
+            this.keyedHeap[this.heapSize] = new Keyed<>(x,
+                    this.keyExtractor.apply(x), this.nextSequence);
+            this.nextSequence++;
+            this.heapSize++;
+            siftUp(this.keyedHeap, this.heapSize - 1, this.arity,
+                    this.keyedOrder);
+        } else {
+            this.append(x);
+            siftUp(this.heap, this.heapSize - 1, this.arity,
+                    this.machineOrder);
+        }
+
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Removes the first {@code min(k, |this.contents|)} entries of
+     * {@code this}, in order, into {@code out[0]}, {@code out[1]}, and so on,
+     * and reports how many were removed.
+     *
+     * @param k
+     *            the maximum number of entries to remove
+     * @param out
+     *            the array receiving the removed entries
+     * @return the number of entries removed
+     * @updates this.contents, out
+     * @requires not this.insertion_mode  and  0 <= k <= |out|
+     * @ensures <pre>
+     * removeFirst = min(k, |#this.contents|)  and
+     * [out[0, removeFirst) are the first removeFirst entries of
+     *  #this.contents in the order, with removeFirst entries removed from
+     *  #this.contents to give this.contents]  and
+     * [the other entries of out are unchanged]
+     * </pre>
+     */
+    public final int removeFirst(int k, T[] out) {
+        assert out != null : "Violation of: out is not null";
+        assert !this.insertionMode : "Violation of: not this.insertion_mode";
+        assert 0 <= k : "Violation of: 0 <= k";
+        assert k <= out.length : "Violation of: k <= |out|";
+
+        int count = Math.min(k, this.heapSize);
+        for (int i = 0; i < count; i++) {
+            out[i] = this.pollRoot();
+        }
+
+        assert this.conventionHolds();
+
+        return count;
+    }
+
+    /**
+     * Removes the first {@code min(max, |this.contents|)} entries of
+     * {@code this}, in order, and enqueues them onto {@code dst}, reporting
+     * how many were moved.
+     *
+     * @param dst
+     *            the queue receiving the removed entries
+     * @param max
+     *            the maximum number of entries to move
+     * @return the number of entries moved
+     * @updates this.contents, dst
+     * @requires not this.insertion_mode  and  max >= 0
+     * @ensures <pre>
+     * drainTo = min(max, |#this.contents|)  and
+     * dst = #dst * [the first drainTo entries of #this.contents, in the
+     *  order]  and
+     * this.contents = #this.contents \ [those drainTo entries]
+     * </pre>
+     */
+    public final int drainTo(Queue<T> dst, int max) {
+        assert dst != null : "Violation of: dst is not null";
+        assert !this.insertionMode : "Violation of: not this.insertion_mode";
+        assert 0 <= max : "Violation of: max >= 0";
+
+        int count = Math.min(max, this.heapSize);
+        for (int i = 0; i < count; i++) {
+            dst.enqueue(this.pollRoot());
+        }
+
+        assert this.conventionHolds();
+
+        return count;
+    }
+
     /**
      * Implementation of {@code Iterator} interface for
      * {@code SortingMachine5a}.
@@ -586,12 +1174,7 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
     private final class SortingMachine5aIterator implements Iterator<T> {
 
         /**
-         * Representation iterator when in insertion mode.
-         */
-        private Iterator<T> queueIterator;
-
-        /**
-         * Representation iterator count when in extraction mode.
+         * Index of the next entry of the array to return.
          */
         private int arrayCurrentIndex;
 
@@ -599,24 +1182,14 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
          * No-argument constructor.
          */
         private SortingMachine5aIterator() {
-            if (SortingMachine5a.this.insertionMode) {
-                this.queueIterator = SortingMachine5a.this.entries.iterator();
-            } else {
-                this.arrayCurrentIndex = 0;
-            }
+            this.arrayCurrentIndex = 0;
             assert SortingMachine5a.this.conventionHolds();
         }
 
         @Override
         public boolean hasNext() {
-            boolean hasNext;
-            if (SortingMachine5a.this.insertionMode) {
-                hasNext = this.queueIterator.hasNext();
-            } else {
-                hasNext = this.arrayCurrentIndex < SortingMachine5a.this.heapSize;
-            }
             assert SortingMachine5a.this.conventionHolds();
-            return hasNext;
+            return this.arrayCurrentIndex < SortingMachine5a.this.heapSize;
         }
 
         @Override
@@ -630,13 +1203,14 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
                  */
                 throw new NoSuchElementException();
             }
+            int i = this.arrayCurrentIndex;
             T next;
-            if (SortingMachine5a.this.insertionMode) {
-                next = this.queueIterator.next();
+            if (SortingMachine5a.this.keyedHeap != null) {
+                next = SortingMachine5a.this.keyedHeap[i].entry;
             } else {
-                next = SortingMachine5a.this.heap[this.arrayCurrentIndex];
-                this.arrayCurrentIndex++;
+                next = SortingMachine5a.this.heap[i];
             }
+            this.arrayCurrentIndex++;
             assert SortingMachine5a.this.conventionHolds();
             return next;
         }
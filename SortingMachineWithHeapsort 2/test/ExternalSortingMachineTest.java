@@ -0,0 +1,140 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import components.sortingmachine.SortingMachine;
+import components.sortingmachine.SortingMachine1L;
+
+/**
+ * Customized JUnit test fixture for {@code ExternalSortingMachine}, with runs
+ * short enough that the tests spill to disk.
+ */
+public final class ExternalSortingMachineTest extends SortingMachineTest {
+
+    /**
+     * Maximum number of entries in a run.
+     */
+    private static final int RUN_LENGTH = 3;
+
+    /**
+     * Number of entries in the merge test.
+     */
+    private static final int MANY_ENTRIES = 1000;
+
+    /**
+     * Multiplier used to scramble the order entries are added in; it is
+     * coprime with {@code MANY_ENTRIES}.
+     */
+    private static final int SCRAMBLE = 331;
+
+    @Override
+    protected SortingMachine<String> constructorTest(Comparator<String> order) {
+        return new ExternalSortingMachine<String>(order, RUN_LENGTH);
+    }
+
+    @Override
+    protected SortingMachine<String> constructorRef(Comparator<String> order) {
+        return new SortingMachine1L<String>(order);
+    }
+
+    /**
+     * Test merging many runs, with contents compared part way through the
+     * merge and after clear.
+     */
+    @Test
+    public void testMergeManyRuns() {
+        Comparator<String> order = (s1, s2) -> s1.compareTo(s2);
+        SortingMachine<String> m = new ExternalSortingMachine<String>(order,
+                RUN_LENGTH * RUN_LENGTH);
+        SortingMachine<String> mExp = this.constructorRef(order);
+        for (int i = 0; i < MANY_ENTRIES; i++) {
+            String x = Integer.toString(i * SCRAMBLE % MANY_ENTRIES);
+            m.add(x);
+            mExp.add(x);
+        }
+        assertEquals(mExp, m);
+        m.changeToExtractionMode();
+        mExp.changeToExtractionMode();
+        for (int i = 0; i < MANY_ENTRIES / 2; i++) {
+            assertEquals(mExp.removeFirst(), m.removeFirst());
+        }
+        assertEquals(mExp, m);
+        m.clear();
+        mExp.clear();
+        assertEquals(mExp, m);
+    }
+
+    /**
+     * Returns the run files now in the temporary-file directory.
+     *
+     * @return the paths of the run files
+     */
+    private static Set<Path> runFiles() {
+        Set<Path> files = new HashSet<>();
+        Path tmp = Paths.get(System.getProperty("java.io.tmpdir"));
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(tmp,
+                "sortingmachine*.run")) {
+            for (Path file : dir) {
+                files.add(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return files;
+    }
+
+    /**
+     * Test iterators abandoned part way through, in both modes: the contents
+     * are unaffected, and clear still deletes every run file.
+     */
+    @Test
+    public void testPartiallyConsumedIterator() {
+        Set<Path> before = runFiles();
+        Comparator<String> order = (s1, s2) -> s1.compareTo(s2);
+        SortingMachine<String> m = new ExternalSortingMachine<String>(order,
+                RUN_LENGTH);
+        SortingMachine<String> mExp = this.constructorRef(order);
+        for (int i = 0; i < MANY_ENTRIES; i++) {
+            String x = Integer.toString(i * SCRAMBLE % MANY_ENTRIES);
+            m.add(x);
+            mExp.add(x);
+        }
+        int seen = 0;
+        for (String x : m) {
+            seen++;
+            if (seen == RUN_LENGTH + 1) {
+                break;
+            }
+        }
+        assertEquals(mExp, m);
+        m.changeToExtractionMode();
+        mExp.changeToExtractionMode();
+        for (int i = 0; i < MANY_ENTRIES / 2; i++) {
+            assertEquals(mExp.removeFirst(), m.removeFirst());
+            seen = 0;
+            for (String x : m) {
+                seen++;
+                if (seen == RUN_LENGTH + 1) {
+                    break;
+                }
+            }
+        }
+        assertEquals(mExp, m);
+        m.clear();
+        mExp.clear();
+        assertEquals(mExp, m);
+        assertTrue(before.containsAll(runFiles()));
+    }
+
+}
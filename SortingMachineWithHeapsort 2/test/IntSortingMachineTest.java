@@ -0,0 +1,108 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Comparator;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code IntSortingMachine}, checked against
+ * {@code SortingMachine5a<Integer>} with the same order.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class IntSortingMachineTest {
+
+    /**
+     * Number of entries in the larger tests.
+     */
+    private static final int MANY_ENTRIES = 500;
+
+    /**
+     * Multiplier used to scramble the entries; it is coprime with
+     * {@code MANY_ENTRIES}.
+     */
+    private static final int SCRAMBLE = 317;
+
+    /**
+     * Returns the i-th test entry: scrambled, negative for about half of the
+     * entries, and with every value appearing twice.
+     *
+     * @param i
+     *            the index of the entry
+     * @return the entry
+     */
+    private static int entry(int i) {
+        return (i * SCRAMBLE % MANY_ENTRIES) / 2 - MANY_ENTRIES / 4;
+    }
+
+    /**
+     * Adds the first {@code MANY_ENTRIES} test entries to both machines,
+     * switches both to extraction mode, and checks that they remove the same
+     * entries in the same order.
+     *
+     * @param m
+     *            the machine under test
+     * @param mExp
+     *            the generic machine with the same order
+     */
+    private static void assertSameOrder(IntSortingMachine m,
+            SortingMachine5a<Integer> mExp) {
+        for (int i = 0; i < MANY_ENTRIES; i++) {
+            m.add(entry(i));
+            mExp.add(entry(i));
+        }
+        assertEquals(mExp.size(), m.size());
+        m.changeToExtractionMode();
+        mExp.changeToExtractionMode();
+        while (mExp.size() > 0) {
+            assertEquals(mExp.removeFirst().intValue(), m.removeFirst());
+        }
+        assertEquals(0, m.size());
+    }
+
+    /**
+     * Test of the natural order.
+     */
+    @Test
+    public final void testNaturalOrder() {
+        Comparator<Integer> order = (a, b) -> Integer.compare(a, b);
+        assertSameOrder(new IntSortingMachine(),
+                new SortingMachine5a<Integer>(order));
+    }
+
+    /**
+     * Test of a given order: decreasing.
+     */
+    @Test
+    public final void testGivenOrder() {
+        Comparator<Integer> order = (a, b) -> Integer.compare(b, a);
+        assertSameOrder(new IntSortingMachine((a, b) -> Integer.compare(b, a)),
+                new SortingMachine5a<Integer>(order));
+    }
+
+    /**
+     * Test of the modes, clear, newInstance, and transferFrom.
+     */
+    @Test
+    public final void testModesAndTransfer() {
+        IntSortingMachine m = new IntSortingMachine();
+        assertTrue(m.isInInsertionMode());
+        m.add(2);
+        m.add(1);
+        m.changeToExtractionMode();
+        assertTrue(!m.isInInsertionMode());
+
+        IntSortingMachine n = m.newInstance();
+        n.transferFrom(m);
+        assertTrue(m.isInInsertionMode());
+        assertEquals(0, m.size());
+        assertEquals(1, n.removeFirst());
+        assertEquals(1, n.size());
+        n.clear();
+        assertTrue(n.isInInsertionMode());
+        assertEquals(0, n.size());
+    }
+
+}
@@ -0,0 +1,110 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Comparator;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code LongSortingMachine}, checked against
+ * {@code SortingMachine5a<Long>} with the same order.
+ *
+ * @author Jared Malto and Kelvin Nguyen
+ *
+ */
+public class LongSortingMachineTest {
+
+    /**
+     * Number of entries in the larger tests.
+     */
+    private static final int MANY_ENTRIES = 500;
+
+    /**
+     * Multiplier used to scramble the entries; it is coprime with
+     * {@code MANY_ENTRIES}.
+     */
+    private static final int SCRAMBLE = 317;
+
+    /**
+     * Returns the i-th test entry: scrambled, negative for about half of the
+     * entries, mostly out of {@code int} range, and with every value appearing
+     * twice.
+     *
+     * @param i
+     *            the index of the entry
+     * @return the entry
+     */
+    private static long entry(int i) {
+        return ((i * SCRAMBLE % MANY_ENTRIES) / 2 - MANY_ENTRIES / 4)
+                * (long) Integer.MAX_VALUE;
+    }
+
+    /**
+     * Adds the first {@code MANY_ENTRIES} test entries to both machines,
+     * switches both to extraction mode, and checks that they remove the same
+     * entries in the same order.
+     *
+     * @param m
+     *            the machine under test
+     * @param mExp
+     *            the generic machine with the same order
+     */
+    private static void assertSameOrder(LongSortingMachine m,
+            SortingMachine5a<Long> mExp) {
+        for (int i = 0; i < MANY_ENTRIES; i++) {
+            m.add(entry(i));
+            mExp.add(entry(i));
+        }
+        assertEquals(mExp.size(), m.size());
+        m.changeToExtractionMode();
+        mExp.changeToExtractionMode();
+        while (mExp.size() > 0) {
+            assertEquals(mExp.removeFirst().longValue(), m.removeFirst());
+        }
+        assertEquals(0, m.size());
+    }
+
+    /**
+     * Test of the natural order.
+     */
+    @Test
+    public final void testNaturalOrder() {
+        Comparator<Long> order = (a, b) -> Long.compare(a, b);
+        assertSameOrder(new LongSortingMachine(),
+                new SortingMachine5a<Long>(order));
+    }
+
+    /**
+     * Test of a given order: decreasing.
+     */
+    @Test
+    public final void testGivenOrder() {
+        Comparator<Long> order = (a, b) -> Long.compare(b, a);
+        assertSameOrder(new LongSortingMachine((a, b) -> Long.compare(b, a)),
+                new SortingMachine5a<Long>(order));
+    }
+
+    /**
+     * Test of the modes, clear, newInstance, and transferFrom.
+     */
+    @Test
+    public final void testModesAndTransfer() {
+        LongSortingMachine m = new LongSortingMachine();
+        assertTrue(m.isInInsertionMode());
+        m.add(2);
+        m.add(1);
+        m.changeToExtractionMode();
+        assertTrue(!m.isInInsertionMode());
+
+        LongSortingMachine n = m.newInstance();
+        n.transferFrom(m);
+        assertTrue(m.isInInsertionMode());
+        assertEquals(0, m.size());
+        assertEquals(1L, n.removeFirst());
+        assertEquals(1, n.size());
+        n.clear();
+        assertTrue(n.isInInsertionMode());
+        assertEquals(0, n.size());
+    }
+
+}
@@ -1,5 +1,13 @@
+import static org.junit.Assert.assertEquals;
+
 import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
 
+import components.queue.Queue;
+import components.queue.Queue1L;
 import components.sortingmachine.SortingMachine;
 import components.sortingmachine.SortingMachine1L;
 
@@ -8,6 +16,28 @@ import components.sortingmachine.SortingMachine1L;
  */
 public final class SortingMachine5aTest extends SortingMachineTest {
 
+    /**
+     * Number of entries in the streaming test.
+     */
+    private static final int STREAM_LENGTH = 300;
+
+    /**
+     * Multiplier used to scramble the streamed entries; it is coprime with
+     * {@code STREAM_LENGTH}.
+     */
+    private static final int SCRAMBLE = 127;
+
+    /**
+     * Number of entries kept in the bounded tests.
+     */
+    private static final int TOP_K = 10;
+
+    /**
+     * Lexicographic order on {@code String}s.
+     */
+    private static final Comparator<String> ORDER = (s1, s2) -> s1
+            .compareTo(s2);
+
     @Override
     protected SortingMachine<String> constructorTest(Comparator<String> order) {
         return new SortingMachine5a<String>(order);
@@ -18,4 +48,201 @@ public final class SortingMachine5aTest extends SortingMachineTest {
         return new SortingMachine1L<String>(order);
     }
 
+    /**
+     * Test offer in insertion mode and in extraction mode on an empty heap.
+     */
+    @Test
+    public void testOfferBothModes() {
+        SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER);
+        SortingMachine<String> mExp = this.constructorRef(ORDER);
+        m.offer("green");
+        mExp.add("green");
+        assertEquals(mExp, m);
+
+        m.changeToExtractionMode();
+        mExp.changeToExtractionMode();
+        assertEquals(mExp.removeFirst(), m.removeFirst());
+        m.offer("red");
+        m.offer("blue");
+        assertEquals(2, m.size());
+        assertEquals("blue", m.removeFirst());
+        assertEquals("red", m.removeFirst());
+    }
+
+    /**
+     * Test interleaving offer and removeFirst in extraction mode, checking
+     * each removed entry against a {@code java.util.PriorityQueue}.
+     */
+    @Test
+    public void testOfferDuringExtraction() {
+        SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER);
+        PriorityQueue<String> qExp = new PriorityQueue<String>(ORDER);
+        m.add("m");
+        qExp.add("m");
+        m.changeToExtractionMode();
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            String x = "k" + (i * SCRAMBLE % STREAM_LENGTH);
+            m.offer(x);
+            qExp.add(x);
+            if (i % 3 == 0) {
+                assertEquals(qExp.remove(), m.removeFirst());
+            }
+        }
+        assertEquals(qExp.size(), m.size());
+        while (qExp.size() > 0) {
+            assertEquals(qExp.remove(), m.removeFirst());
+        }
+    }
+
+    /**
+     * Test that a bounded machine keeps only the first K entries added in
+     * insertion mode, and returns them in order.
+     */
+    @Test
+    public void testBoundedKeepsFirstEntries() {
+        SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER, 4,
+                TOP_K);
+        PriorityQueue<String> qExp = new PriorityQueue<String>(ORDER);
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            String x = "k" + (1000 + i * SCRAMBLE % STREAM_LENGTH);
+            m.add(x);
+            qExp.add(x);
+            assertEquals(Math.min(i + 1, TOP_K), m.size());
+        }
+        m.changeToExtractionMode();
+        assertEquals(TOP_K, m.size());
+        while (m.size() > 0) {
+            assertEquals(qExp.remove(), m.removeFirst());
+        }
+    }
+
+    /**
+     * Test a machine bounded to a single entry, including duplicates of it,
+     * and that newInstance keeps the bound.
+     */
+    @Test
+    public void testBoundOne() {
+        SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER, 2, 1);
+        m.add("red");
+        m.add("blue");
+        m.add("green");
+        m.add("blue");
+        assertEquals(1, m.size());
+        m.changeToExtractionMode();
+        assertEquals("blue", m.removeFirst());
+
+        SortingMachine<String> n = m.newInstance();
+        n.add("red");
+        n.add("blue");
+        assertEquals(1, n.size());
+    }
+
+    /**
+     * Test that a stable keyed machine computes each key once and removes
+     * entries with equal keys in the order they were added, including entries
+     * offered in extraction mode.
+     */
+    @Test
+    public void testKeyedStable() {
+        AtomicInteger calls = new AtomicInteger();
+        SortingMachine5a<String> m = new SortingMachine5a<String>(s -> {
+            calls.incrementAndGet();
+            return s.toLowerCase();
+        }, ORDER, true);
+        String[] added = { "banana", "Apple", "apple", "Banana", "APPLE",
+            "cherry" };
+        for (String x : added) {
+            m.add(x);
+        }
+        assertEquals(0, calls.get());
+        m.changeToExtractionMode();
+        assertEquals(added.length, calls.get());
+        m.offer("BANANA");
+        assertEquals(added.length + 1, calls.get());
+
+        String[] expected = { "Apple", "apple", "APPLE", "banana", "Banana",
+            "BANANA", "cherry" };
+        assertEquals(expected.length, m.size());
+        for (String x : expected) {
+            assertEquals(x, m.removeFirst());
+        }
+        assertEquals(added.length + 1, calls.get());
+    }
+
+    /**
+     * Test that an unstable keyed machine removes entries in key order, and
+     * that newInstance and transferFrom keep the key extractor.
+     */
+    @Test
+    public void testKeyedNewInstanceAndTransfer() {
+        SortingMachine5a<String> m = new SortingMachine5a<String>(
+                String::length, Comparator.<Integer>naturalOrder(), false);
+        SortingMachine<String> n = m.newInstance();
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            n.add("k" + (i * SCRAMBLE % STREAM_LENGTH));
+        }
+        n.changeToExtractionMode();
+        m.transferFrom(n);
+        assertEquals(0, n.size());
+        assertEquals(STREAM_LENGTH, m.size());
+        int length = 0;
+        while (m.size() > 0) {
+            int next = m.removeFirst().length();
+            assertEquals(true, length <= next);
+            length = next;
+        }
+    }
+
+    /**
+     * Test removing entries in batches with removeFirst(k, out), including a
+     * last batch shorter than k, against a {@code java.util.PriorityQueue}.
+     */
+    @Test
+    public void testRemoveFirstBatches() {
+        SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER);
+        PriorityQueue<String> qExp = new PriorityQueue<String>(ORDER);
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            String x = "k" + (i * SCRAMBLE % STREAM_LENGTH);
+            m.add(x);
+            qExp.add(x);
+        }
+        m.changeToExtractionMode();
+        String[] out = new String[TOP_K + 1];
+        int removed = m.removeFirst(TOP_K, out);
+        while (removed > 0) {
+            for (int i = 0; i < removed; i++) {
+                assertEquals(qExp.remove(), out[i]);
+            }
+            assertEquals(null, out[TOP_K]);
+            assertEquals(qExp.size(), m.size());
+            removed = m.removeFirst(TOP_K, out);
+        }
+        assertEquals(0, qExp.size());
+    }
+
+    /**
+     * Test drainTo on a keyed machine, appending to a non-empty queue.
+     */
+    @Test
+    public void testDrainTo() {
+        SortingMachine5a<String> m = new SortingMachine5a<String>(
+                String::length, Comparator.<Integer>naturalOrder(), true);
+        m.add("ccc");
+        m.add("a");
+        m.add("bb");
+        m.add("d");
+        m.changeToExtractionMode();
+        Queue<String> q = new Queue1L<String>();
+        q.enqueue("x");
+        assertEquals(3, m.drainTo(q, 3));
+        assertEquals(1, m.size());
+        assertEquals(1, m.drainTo(q, TOP_K));
+        assertEquals(0, m.drainTo(q, TOP_K));
+        String[] expected = { "x", "a", "d", "bb", "ccc" };
+        for (String x : expected) {
+            assertEquals(x, q.dequeue());
+        }
+        assertEquals(0, q.length());
+    }
+
 }
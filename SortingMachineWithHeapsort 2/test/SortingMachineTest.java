@@ -528,4 +528,41 @@ public abstract class SortingMachineTest {
 
     }
 
+    /*
+     * Tests for sorting many entries
+     */
+
+    /**
+     * Number of entries in the larger sorting tests.
+     */
+    private static final int MANY_ENTRIES = 500;
+
+    /**
+     * Multiplier used to scramble the order entries are added in; it is
+     * coprime with {@code MANY_ENTRIES}.
+     */
+    private static final int SCRAMBLE = 317;
+
+    /**
+     * Test that removeFirst returns many entries, including duplicates, in
+     * order.
+     */
+    @Test
+    public final void testRemoveFirstManyEntries() {
+        SortingMachine<String> m = this.constructorTest(ORDER);
+        SortingMachine<String> mExp = this.constructorRef(ORDER);
+        for (int i = 0; i < MANY_ENTRIES; i++) {
+            String x = "entry" + (i * SCRAMBLE % MANY_ENTRIES) / 2;
+            m.add(x);
+            mExp.add(x);
+        }
+        m.changeToExtractionMode();
+        mExp.changeToExtractionMode();
+        assertEquals(mExp, m);
+        while (mExp.size() > 0) {
+            assertEquals(mExp.removeFirst(), m.removeFirst());
+        }
+        assertEquals(mExp, m);
+    }
+
 }